@@ -44,7 +44,8 @@ public abstract class DistanceListener extends ObjectListener {
 	@Override
 	public void handleTPV(final TPVObject tpv) {
 		if ((this.lastPosition == null) || (GISTool.getDistance(tpv, this.lastPosition) > this.threshold)) {
-			this.lastPosition = tpv;
+			// copy as the parser may reuse the object
+			this.lastPosition = tpv.copy();
 			this.handleLocation(tpv);
 		}
 	}
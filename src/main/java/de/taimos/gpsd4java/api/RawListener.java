@@ -0,0 +1,39 @@
+package de.taimos.gpsd4java.api;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener to receive the raw data of the receivers in raw watch mode
+ */
+public interface RawListener {
+	
+	/**
+	 * Called on the thread reading from GPSd with the bytes as they were received, without any framing. The buffer is
+	 * usually a direct buffer returned to a pool after this call, copy the data to keep it.
+	 *
+	 * @param data the received bytes between position and limit
+	 */
+	void handleRaw(ByteBuffer data);
+	
+}
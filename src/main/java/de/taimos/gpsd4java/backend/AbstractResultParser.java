@@ -21,10 +21,9 @@ package de.taimos.gpsd4java.backend;
  * #L%
  */
 
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -34,22 +33,33 @@ import org.slf4j.LoggerFactory;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonPrimitive;
 
 import de.taimos.gpsd4java.types.IGPSObject;
 import de.taimos.gpsd4java.types.ParseException;
 
 /**
+ * Base class of the parsers turning lines received from GPSd into {@link IGPSObject}s<br>
+ * <br>
+ * The parsers of this library keep no state between two calls, so one instance can be shared by several threads and
+ * endpoints. Subclasses using the deprecated {@link #dateFormat} are not thread-safe.
+ *
  * @author irakli, thoeger
  */
-public abstract class AbstractResultParser {
+public abstract class AbstractResultParser implements Cloneable {
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractResultParser.class);
 
+    /**
+     * @deprecated timestamps are decoded by {@link TimestampDecoder}, this format is no longer used. It is not
+     *             thread-safe.
+     */
+    @Deprecated
     protected final DateFormat dateFormat; // Don't make this static!
 
-    private final JsonParser jsonParser;
+    // true if a subclass overrides optField, the typed optXXX methods then call it as they used to, null until the
+    // first of them is called, so parsers not using Gson never look at its types
+    private volatile Boolean customOptField;
 
     /**
      * Create new ResultParser
@@ -57,8 +67,6 @@ public abstract class AbstractResultParser {
     protected AbstractResultParser() {
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
         this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        this.jsonParser = new JsonParser();
     }
 
     /**
@@ -71,12 +79,51 @@ public abstract class AbstractResultParser {
      *             if parsing fails
      */
     public IGPSObject parse(final String line) throws ParseException {
-        try {
-            final JsonObject jsonObject = this.jsonParser.parse(line).getAsJsonObject();
-            return this.parse(jsonObject);
-        } catch (final JsonSyntaxException e) {
-            throw new ParseException("Parsing failed", e);
-        }
+        return this.parse(GsonTrees.parse(line));
+    }
+
+    /**
+     * Parse a received line into a {@link IGPSObject}
+     *
+     * @param buffer
+     *            the buffer holding the line read from GPSd
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     * @return the parsed object
+     * @throws ParseException
+     *             if parsing fails
+     */
+    public IGPSObject parse(final byte[] buffer, final int offset, final int length) throws ParseException {
+        return this.parse(new String(buffer, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get a parser for the protocol revision a GPSd reported in its VERSION message. The endpoint calls this for
+     * every VERSION message it receives. This parser is not changed, so it can still be shared by endpoints connected
+     * to different GPSd versions.
+     *
+     * @param major
+     *            the <code>proto_major</code> of the VERSION message
+     * @param minor
+     *            the <code>proto_minor</code> of the VERSION message
+     * @return a parser specialized for the revision, this parser if the revision makes no difference
+     */
+    public AbstractResultParser forProtocol(final int major, final int minor) {
+        return this;
+    }
+
+    /**
+     * {@link GPSdEndpoint} drops lines of message classes the parser can not decode without parsing them. Parsers
+     * decoding other classes than the ones of the library have to override this method.
+     *
+     * @param className
+     *            the GPSd class name, e.g. <code>TOFF</code>
+     * @return <code>true</code> if lines of the message class may be decoded, <code>false</code> if they are rejected
+     */
+    protected boolean isDecoded(final String className) {
+        return true;
     }
 
     /**
@@ -89,48 +136,76 @@ public abstract class AbstractResultParser {
     /**
      * parse a whole JSONArray into a list of IGPSObjects
      */
-    @SuppressWarnings({ "unchecked", "unused" })
+    @SuppressWarnings("unused")
     protected <T extends IGPSObject> List<T> parseObjectArray(final JsonArray array, final Class<T> type)
             throws ParseException {
+        return GsonTrees.parseObjectArray(this, array);
+    }
+
+    /*
+     * whether GPSd of this protocol revision sends POLL messages with time, tpv and sky. Older revisions renamed these
+     * fields several times, their POLL messages are probed for all names.
+     */
+    static boolean isCurrentPollLayout(final int major, final int minor) {
+        return (major > 3) || ((major == 3) && (minor >= 8));
+    }
+
+    /*
+     * shallow copy sharing the registered decoders and settings of this parser
+     */
+    AbstractResultParser copy() {
         try {
-            if (array == null) {
-                return new ArrayList<T>(10);
-            }
-            final List<T> objects = new ArrayList<T>(10);
-            for (int i = 0; i < array.size(); i++) {
-                objects.add((T) this.parse(array.get(i).getAsJsonObject()));
-            }
-            return objects;
-        } catch (final JsonSyntaxException e) {
-            throw new ParseException("Parsing failed", e);
+            return (AbstractResultParser) super.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Parse a time field. GPSd sends ISO 8601 timestamps, older versions send seconds since the epoch as a number.
+     *
+     * @param json
+     *            the object containing the field
+     * @param fieldName
+     *            the name of the field
+     * @return seconds since the epoch or <code>Double.NaN</code> if the field is missing or can not be parsed
+     */
     protected double parseTimestamp(final JsonObject json, final String fieldName) {
-        try {
-            final String text = optString(json, fieldName, null);
-
-            if (text != null) {
-                LOG.debug("{}: {}", fieldName, text);
-                final Date date = this.dateFormat.parse(text);
-                if (LOG.isDebugEnabled()) {
-                    final String ds = DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL).format(date);
-                    LOG.debug("Date: {}", ds);
-                }
-                return date.getTime() / 1000.0;
-            }
-        } catch (final Exception ex) {
-            // trying to parse field as double
-            double d = optDouble(json, fieldName, Double.NaN);
-            if (d != Double.NaN) {
-                return d;
-            }
-            LOG.info("Failed to parse time", ex);
-
+        final JsonElement jsonField = json.get(fieldName);
+        if ((jsonField == null) || !jsonField.isJsonPrimitive()) {
+            return Double.NaN;
+        }
+        final JsonPrimitive primitive = jsonField.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            return DecimalParser.parseDouble(primitive.getAsString());
+        }
+        if (primitive.isString()) {
+            final String text = primitive.getAsString();
+            LOG.debug("{}: {}", fieldName, text);
+            return this.parseTimestamp(text);
         }
         return Double.NaN;
     }
 
+    /**
+     * Parse a timestamp as sent by GPSd
+     *
+     * @param text
+     *            the timestamp text
+     * @return seconds since the epoch or <code>Double.NaN</code> if the text can not be parsed
+     */
+    protected double parseTimestamp(final String text) {
+        final double timestamp = TimestampDecoder.decodeEpochSeconds(text);
+        if (Double.isNaN(timestamp)) {
+            LOG.debug("Failed to parse time: {}", text);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Generic variant of the typed <code>optXXX</code> methods, which avoid the type checks and boxing of this method.
+     * If a subclass overrides it, the typed methods call it for every field.
+     */
     @SuppressWarnings("unchecked")
     protected <T> T optField(Class<T> clazz, JsonObject json, String field, T fallBackValue) {
         T t = fallBackValue;
@@ -138,9 +213,9 @@ public abstract class AbstractResultParser {
         if (jsonField != null && !json.isJsonNull() && jsonField.isJsonPrimitive()) {
             if (jsonField.getAsJsonPrimitive().isNumber()) {
                 if (clazz.isAssignableFrom(Double.class)) {
-                    t = (T) Double.valueOf(jsonField.getAsDouble());
+                    t = (T) Double.valueOf(DecimalParser.parseDouble(jsonField.getAsString()));
                 } else if (clazz.isAssignableFrom(Integer.class)) {
-                    t = (T) Integer.valueOf(jsonField.getAsInt());
+                    t = (T) Integer.valueOf(DecimalParser.parseInt(jsonField.getAsString()));
                 }
             } else if (jsonField.getAsJsonPrimitive().isBoolean()) {
                 if (clazz.isAssignableFrom(Boolean.class)) {
@@ -157,11 +232,25 @@ public abstract class AbstractResultParser {
     }
 
     protected double optDouble(JsonObject json, String field, double fallbackValue) {
-        return optField(Double.class, json, field, fallbackValue);
+        if (this.isCustomOptField()) {
+            return this.optField(Double.class, json, field, fallbackValue);
+        }
+        final JsonPrimitive primitive = optPrimitive(json, field);
+        if ((primitive == null) || !primitive.isNumber()) {
+            return fallbackValue;
+        }
+        return DecimalParser.parseDouble(primitive.getAsString());
     }
 
     protected int optInt(JsonObject json, String field, int fallbackValue) {
-        return optField(Integer.class, json, field, fallbackValue);
+        if (this.isCustomOptField()) {
+            return this.optField(Integer.class, json, field, fallbackValue);
+        }
+        final JsonPrimitive primitive = optPrimitive(json, field);
+        if ((primitive == null) || !primitive.isNumber()) {
+            return fallbackValue;
+        }
+        return DecimalParser.parseInt(primitive.getAsString());
     }
 
     protected int optInt(JsonObject json, String field) {
@@ -169,14 +258,48 @@ public abstract class AbstractResultParser {
     }
 
     protected boolean optBoolean(JsonObject json, String field, boolean fallbackValue) {
-        return optField(Boolean.class, json, field, fallbackValue);
+        if (this.isCustomOptField()) {
+            return this.optField(Boolean.class, json, field, fallbackValue);
+        }
+        final JsonPrimitive primitive = optPrimitive(json, field);
+        if ((primitive == null) || !primitive.isBoolean()) {
+            return fallbackValue;
+        }
+        return primitive.getAsBoolean();
     }
 
     protected String optString(JsonObject json, String field, String fallbackValue) {
-        return optField(String.class, json, field, fallbackValue);
+        if (this.isCustomOptField()) {
+            return this.optField(String.class, json, field, fallbackValue);
+        }
+        final JsonPrimitive primitive = optPrimitive(json, field);
+        if ((primitive == null) || !primitive.isString()) {
+            return fallbackValue;
+        }
+        return primitive.getAsString();
     }
 
     protected String optString(JsonObject json, String field) {
         return optString(json, field, "");
     }
+
+    private boolean isCustomOptField() {
+        Boolean custom = this.customOptField;
+        if (custom == null) {
+            custom = GsonTrees.overridesOptField(this.getClass());
+            this.customOptField = custom;
+        }
+        return custom;
+    }
+
+    /*
+     * the field if it is a primitive, null otherwise
+     */
+    private static JsonPrimitive optPrimitive(final JsonObject json, final String field) {
+        final JsonElement jsonField = json.get(field);
+        if ((jsonField == null) || !jsonField.isJsonPrimitive()) {
+            return null;
+        }
+        return jsonField.getAsJsonPrimitive();
+    }
 }
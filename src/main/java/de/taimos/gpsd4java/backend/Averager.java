@@ -0,0 +1,204 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+import de.taimos.gpsd4java.types.ATTObject;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.TPVObject;
+
+/**
+ * Mean of the numeric fields of the objects of one interval, used by {@link EDecimation#Average}<br>
+ * <br>
+ * Fields that are NaN in an object are left out of their mean. Angles like the course are averaged as directions, so
+ * the mean of 350 and 10 degrees is 0. The other fields, like the device or the mode, are taken from the last object.
+ */
+final class Averager<T extends IGPSObject> {
+
+    private static final int LINEAR = 0;
+
+    // degrees from 0 to 360
+    private static final int ANGLE = 1;
+
+    // degrees from -180 to 180
+    private static final int LONGITUDE = 2;
+
+    private final List<ToDoubleFunction<T>> getters = new ArrayList<ToDoubleFunction<T>>();
+
+    private final List<ObjDoubleConsumer<T>> setters = new ArrayList<ObjDoubleConsumer<T>>();
+
+    private final List<Integer> kinds = new ArrayList<Integer>();
+
+    // creates the result from the last object
+    private final UnaryOperator<T> create;
+
+    private double[] sums;
+
+    private double[] sines;
+
+    private double[] cosines;
+
+    private int[] counts;
+
+    private T last;
+
+    private Averager(final UnaryOperator<T> create) {
+        this.create = create;
+    }
+
+    /**
+     * @return an averager for objects of the given class, <code>null</code> if they can not be averaged
+     */
+    static Averager<?> forType(final Class<?> type) {
+        if (TPVObject.class.isAssignableFrom(type)) {
+            return Averager.tpv();
+        }
+        if (ATTObject.class.isAssignableFrom(type)) {
+            return Averager.att();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(final IGPSObject object) {
+        final T typed = (T) object;
+        for (int i = 0; i < this.getters.size(); i++) {
+            final double value = this.getters.get(i).applyAsDouble(typed);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            this.counts[i]++;
+            if (this.kinds.get(i) == LINEAR) {
+                this.sums[i] += value;
+            } else {
+                this.sines[i] += Math.sin(Math.toRadians(value));
+                this.cosines[i] += Math.cos(Math.toRadians(value));
+            }
+        }
+        this.last = typed;
+    }
+
+    /**
+     * @return <code>true</code> if no object was added since the last result
+     */
+    boolean isEmpty() {
+        return this.last == null;
+    }
+
+    /**
+     * @return the mean of the added objects, the averager is empty afterwards
+     */
+    T result() {
+        final T result = this.create.apply(this.last);
+        for (int i = 0; i < this.setters.size(); i++) {
+            double mean = Double.NaN;
+            if (this.counts[i] > 0) {
+                if (this.kinds.get(i) == LINEAR) {
+                    mean = this.sums[i] / this.counts[i];
+                } else {
+                    mean = Math.toDegrees(Math.atan2(this.sines[i], this.cosines[i]));
+                    if ((this.kinds.get(i) == ANGLE) && (mean < 0)) {
+                        mean += 360;
+                    }
+                }
+            }
+            this.setters.get(i).accept(result, mean);
+            this.sums[i] = 0;
+            this.sines[i] = 0;
+            this.cosines[i] = 0;
+            this.counts[i] = 0;
+        }
+        this.last = null;
+        return result;
+    }
+
+    private void field(final ToDoubleFunction<T> getter, final ObjDoubleConsumer<T> setter, final int kind) {
+        this.getters.add(getter);
+        this.setters.add(setter);
+        this.kinds.add(kind);
+    }
+
+    private Averager<T> fieldsAdded() {
+        final int size = this.getters.size();
+        this.sums = new double[size];
+        this.sines = new double[size];
+        this.cosines = new double[size];
+        this.counts = new int[size];
+        return this;
+    }
+
+    private static Averager<TPVObject> tpv() {
+        final Averager<TPVObject> averager = new Averager<TPVObject>(TPVObject::copy);
+        averager.field(TPVObject::getTimestamp, TPVObject::setTimestamp, LINEAR);
+        averager.field(TPVObject::getTimestampError, TPVObject::setTimestampError, LINEAR);
+        averager.field(TPVObject::getLatitude, TPVObject::setLatitude, LINEAR);
+        averager.field(TPVObject::getLongitude, TPVObject::setLongitude, LONGITUDE);
+        averager.field(TPVObject::getAltitude, TPVObject::setAltitude, LINEAR);
+        averager.field(TPVObject::getLatitudeError, TPVObject::setLatitudeError, LINEAR);
+        averager.field(TPVObject::getLongitudeError, TPVObject::setLongitudeError, LINEAR);
+        averager.field(TPVObject::getAltitudeError, TPVObject::setAltitudeError, LINEAR);
+        averager.field(TPVObject::getCourse, TPVObject::setCourse, ANGLE);
+        averager.field(TPVObject::getSpeed, TPVObject::setSpeed, LINEAR);
+        averager.field(TPVObject::getClimbRate, TPVObject::setClimbRate, LINEAR);
+        averager.field(TPVObject::getCourseError, TPVObject::setCourseError, LINEAR);
+        averager.field(TPVObject::getSpeedError, TPVObject::setSpeedError, LINEAR);
+        averager.field(TPVObject::getClimbRateError, TPVObject::setClimbRateError, LINEAR);
+        return averager.fieldsAdded();
+    }
+
+    private static Averager<ATTObject> att() {
+        final Averager<ATTObject> averager = new Averager<ATTObject>(last -> {
+            final ATTObject att = new ATTObject();
+            att.setTag(last.getTag());
+            att.setDevice(last.getDevice());
+            att.setMagState(last.getMagState());
+            att.setPitchState(last.getPitchState());
+            att.setYawState(last.getYawState());
+            att.setRollState(last.getRollState());
+            return att;
+        });
+        averager.field(ATTObject::getTimestamp, ATTObject::setTimestamp, LINEAR);
+        averager.field(ATTObject::getHeading, ATTObject::setHeading, ANGLE);
+        averager.field(ATTObject::getPitch, ATTObject::setPitch, LINEAR);
+        averager.field(ATTObject::getYaw, ATTObject::setYaw, ANGLE);
+        averager.field(ATTObject::getRoll, ATTObject::setRoll, LINEAR);
+        averager.field(ATTObject::getDip, ATTObject::setDip, LINEAR);
+        averager.field(ATTObject::getMag_len, ATTObject::setMag_len, LINEAR);
+        averager.field(ATTObject::getMag_x, ATTObject::setMag_x, LINEAR);
+        averager.field(ATTObject::getMag_y, ATTObject::setMag_y, LINEAR);
+        averager.field(ATTObject::getMag_z, ATTObject::setMag_z, LINEAR);
+        averager.field(ATTObject::getAcc_len, ATTObject::setAcc_len, LINEAR);
+        averager.field(ATTObject::getAcc_x, ATTObject::setAcc_x, LINEAR);
+        averager.field(ATTObject::getAcc_y, ATTObject::setAcc_y, LINEAR);
+        averager.field(ATTObject::getAcc_z, ATTObject::setAcc_z, LINEAR);
+        averager.field(ATTObject::getGyro_x, ATTObject::setGyro_x, LINEAR);
+        averager.field(ATTObject::getGyro_y, ATTObject::setGyro_y, LINEAR);
+        averager.field(ATTObject::getDepth, ATTObject::setDepth, LINEAR);
+        averager.field(ATTObject::getTemperature, ATTObject::setTemperature, LINEAR);
+        return averager.fieldsAdded();
+    }
+}
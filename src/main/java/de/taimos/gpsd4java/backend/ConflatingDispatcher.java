@@ -0,0 +1,184 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+
+/**
+ * Keeps only the latest object per device and message class until the dispatch thread passes it on<br>
+ * <br>
+ * Every (class, device) pair has a slot holding the newest object not yet dispatched. A new object replaces the one
+ * waiting in its slot. A slot that becomes filled is queued once for the dispatch thread, which empties it and passes
+ * the object on. There is a single producer, the thread reading from GPSd, which never blocks or takes a lock.
+ */
+final class ConflatingDispatcher implements Dispatcher, Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConflatingDispatcher.class);
+
+    // objects without a device share the slot of this key
+    private static final String NO_DEVICE = "";
+
+    private final GPSdEndpoint endpoint;
+
+    // slots by message type and device, only added to by the producer
+    private final Map<Class<?>, Map<String, AtomicReference<IGPSObject>>> slots = new ConcurrentHashMap<Class<?>, Map<String, AtomicReference<IGPSObject>>>();
+
+    // filled slots in the order they were filled
+    private final Queue<AtomicReference<IGPSObject>> filled = new ConcurrentLinkedQueue<AtomicReference<IGPSObject>>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile Thread thread;
+
+    // set by the dispatch thread before parking
+    private volatile boolean waiting;
+
+    // only changed by the producer
+    private volatile long replaced;
+
+    private volatile int highWaterMark;
+
+    ConflatingDispatcher(final GPSdEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public synchronized void start(final ThreadFactory threadFactory, final boolean daemon) {
+        if (this.thread != null) {
+            return;
+        }
+        final Thread created;
+        if (threadFactory == null) {
+            created = new Thread(this, "GPS Dispatch Thread");
+            created.setDaemon(daemon);
+        } else {
+            created = threadFactory.newThread(this);
+        }
+        this.thread = created;
+        created.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        final Thread stopped = this.thread;
+        this.thread = null;
+        if (stopped != null) {
+            LockSupport.unpark(stopped);
+        }
+        AtomicReference<IGPSObject> slot;
+        while ((slot = this.filled.poll()) != null) {
+            slot.set(null);
+        }
+        this.slots.clear();
+        this.size.set(0);
+    }
+
+    @Override
+    public void put(final IGPSObject object) {
+        final AtomicReference<IGPSObject> slot = this.slot(object);
+        if (slot.getAndSet(object) != null) {
+            this.replaced++;
+            return;
+        }
+        // the slot was empty, so it is not queued
+        this.filled.add(slot);
+        final int waiting = this.size.incrementAndGet();
+        if (waiting > this.highWaterMark) {
+            this.highWaterMark = waiting;
+        }
+        if (this.waiting) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        final Thread self = Thread.currentThread();
+        while (this.thread == self) {
+            final AtomicReference<IGPSObject> slot = this.filled.poll();
+            if (slot == null) {
+                this.waiting = true;
+                // an object put before waiting was set is not missed
+                if (this.filled.isEmpty() && (this.thread == self)) {
+                    LockSupport.park(this);
+                }
+                this.waiting = false;
+                continue;
+            }
+            this.size.decrementAndGet();
+            // empty the slot first, a newer object queues it again
+            final IGPSObject object = slot.getAndSet(null);
+            if (object == null) {
+                continue;
+            }
+            try {
+                this.endpoint.dispatch(object);
+            } catch (final RuntimeException e) {
+                ConflatingDispatcher.LOG.warn("Problem encountered while handling object", e);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return Math.max(this.size.get(), 0);
+    }
+
+    @Override
+    public long getDropped() {
+        return this.replaced;
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return this.highWaterMark;
+    }
+
+    private AtomicReference<IGPSObject> slot(final IGPSObject object) {
+        final Class<?> type = GPSdEndpoint.typeOf(object);
+        Map<String, AtomicReference<IGPSObject>> devices = this.slots.get(type);
+        if (devices == null) {
+            devices = new ConcurrentHashMap<String, AtomicReference<IGPSObject>>();
+            this.slots.put(type, devices);
+        }
+        final String device = GPSdEndpoint.deviceOf(object);
+        final String key = (device == null) ? NO_DEVICE : device;
+        AtomicReference<IGPSObject> slot = devices.get(key);
+        if (slot == null) {
+            slot = new AtomicReference<IGPSObject>();
+            devices.put(key, slot);
+        }
+        return slot;
+    }
+}
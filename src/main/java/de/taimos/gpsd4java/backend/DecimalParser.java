@@ -0,0 +1,300 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts JSON numbers to double and int without creating substrings<br>
+ * <br>
+ * Numbers with at most 18 significant digits whose value is exactly representable after scaling by a power of ten up
+ * to 10^22 (all values sent by GPSd) are converted with one multiplication or division, which is correctly rounded.
+ * Everything else is handed to {@link Double#parseDouble(String)}, so the results are always the same.
+ */
+final class DecimalParser {
+
+    // 10^0 to 10^22 are exactly representable as double
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // integers up to 2^53 are exactly representable as double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // more digits might not fit into a long
+    private static final int MAX_DIGITS = 18;
+
+    private DecimalParser() {
+        // static only
+    }
+
+    /**
+     * @param text
+     *            the number
+     * @return the value of the number
+     * @throws NumberFormatException
+     *             if the text is not a number
+     */
+    static double parseDouble(final String text) {
+        return parseDouble(text, 0, text.length());
+    }
+
+    /**
+     * @param text
+     *            the text holding the number
+     * @param start
+     *            the start of the number
+     * @param end
+     *            the end of the number
+     * @return the value of the number
+     * @throws NumberFormatException
+     *             if the text is not a number
+     */
+    static double parseDouble(final CharSequence text, final int start, final int end) {
+        int i = start;
+        final boolean negative = (i < end) && (text.charAt(i) == '-');
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            final char c = text.charAt(i);
+            if ((c >= '0') && (c <= '9')) {
+                any = true;
+                if ((mantissa != 0) || (c != '0')) {
+                    if (++digits > MAX_DIGITS) {
+                        return Double.parseDouble(text.subSequence(start, end).toString());
+                    }
+                    mantissa = (mantissa * 10) + (c - '0');
+                }
+                if (fraction) {
+                    scale--;
+                }
+            } else if ((c == '.') && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if (any && (i < end) && ((text.charAt(i) == 'e') || (text.charAt(i) == 'E'))) {
+            i++;
+            final boolean negativeExponent = (i < end) && (text.charAt(i) == '-');
+            if ((i < end) && ((text.charAt(i) == '-') || (text.charAt(i) == '+'))) {
+                i++;
+            }
+            final int exponentStart = i;
+            for (; (i < end) && (i - exponentStart < 4); i++) {
+                final char c = text.charAt(i);
+                if ((c < '0') || (c > '9')) {
+                    break;
+                }
+                exponent = (exponent * 10) + (c - '0');
+            }
+            if (i == exponentStart) {
+                any = false;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (!any || (i != end)) {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+        final double value = DecimalParser.compose(mantissa, scale + exponent, negative);
+        if (Double.isNaN(value)) {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+        return value;
+    }
+
+    /**
+     * @param buffer
+     *            the bytes holding the number
+     * @param start
+     *            the start of the number
+     * @param end
+     *            the end of the number
+     * @return the value of the number
+     * @throws NumberFormatException
+     *             if the bytes are not a number
+     */
+    static double parseDouble(final byte[] buffer, final int start, final int end) {
+        int i = start;
+        final boolean negative = (i < end) && (buffer[i] == '-');
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            final byte c = buffer[i];
+            if ((c >= '0') && (c <= '9')) {
+                any = true;
+                if ((mantissa != 0) || (c != '0')) {
+                    if (++digits > MAX_DIGITS) {
+                        return Double.parseDouble(toString(buffer, start, end));
+                    }
+                    mantissa = (mantissa * 10) + (c - '0');
+                }
+                if (fraction) {
+                    scale--;
+                }
+            } else if ((c == '.') && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if (any && (i < end) && ((buffer[i] == 'e') || (buffer[i] == 'E'))) {
+            i++;
+            final boolean negativeExponent = (i < end) && (buffer[i] == '-');
+            if ((i < end) && ((buffer[i] == '-') || (buffer[i] == '+'))) {
+                i++;
+            }
+            final int exponentStart = i;
+            for (; (i < end) && (i - exponentStart < 4); i++) {
+                final byte c = buffer[i];
+                if ((c < '0') || (c > '9')) {
+                    break;
+                }
+                exponent = (exponent * 10) + (c - '0');
+            }
+            if (i == exponentStart) {
+                any = false;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (!any || (i != end)) {
+            return Double.parseDouble(toString(buffer, start, end));
+        }
+        final double value = DecimalParser.compose(mantissa, scale + exponent, negative);
+        if (Double.isNaN(value)) {
+            return Double.parseDouble(toString(buffer, start, end));
+        }
+        return value;
+    }
+
+    /**
+     * Same conversion as <code>JsonElement.getAsInt()</code>, fractions are cut off instead of failing, e.g. for
+     * <code>"ss":42.5</code>
+     *
+     * @param text
+     *            the number
+     * @return the value of the number
+     * @throws NumberFormatException
+     *             if the text is not a number
+     */
+    static int parseInt(final String text) {
+        return parseInt(text, 0, text.length());
+    }
+
+    /**
+     * @see #parseInt(String)
+     */
+    static int parseInt(final CharSequence text, final int start, final int end) {
+        int i = start;
+        final boolean negative = (i < end) && (text.charAt(i) == '-');
+        if (negative) {
+            i++;
+        }
+        final int digitsStart = i;
+        int value = 0;
+        for (; (i < end) && (i - digitsStart < 9); i++) {
+            final char c = text.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                break;
+            }
+            value = (value * 10) + (c - '0');
+        }
+        if ((i > digitsStart) && (i < end) && (text.charAt(i) == '.')) {
+            i++;
+            while ((i < end) && (text.charAt(i) >= '0') && (text.charAt(i) <= '9')) {
+                i++;
+            }
+        }
+        if ((i == digitsStart) || (i != end)) {
+            return new BigDecimal(text.subSequence(start, end).toString()).intValue();
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @see #parseInt(String)
+     */
+    static int parseInt(final byte[] buffer, final int start, final int end) {
+        int i = start;
+        final boolean negative = (i < end) && (buffer[i] == '-');
+        if (negative) {
+            i++;
+        }
+        final int digitsStart = i;
+        int value = 0;
+        for (; (i < end) && (i - digitsStart < 9); i++) {
+            final byte c = buffer[i];
+            if ((c < '0') || (c > '9')) {
+                break;
+            }
+            value = (value * 10) + (c - '0');
+        }
+        if ((i > digitsStart) && (i < end) && (buffer[i] == '.')) {
+            i++;
+            while ((i < end) && (buffer[i] >= '0') && (buffer[i] <= '9')) {
+                i++;
+            }
+        }
+        if ((i == digitsStart) || (i != end)) {
+            return new BigDecimal(toString(buffer, start, end)).intValue();
+        }
+        return negative ? -value : value;
+    }
+
+    /*
+     * mantissa * 10^exponent if it can be computed exactly, NaN otherwise
+     */
+    private static double compose(final long mantissa, final int exponent, final boolean negative) {
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if ((mantissa > MAX_EXACT_MANTISSA) || (exponent < -22) || (exponent > 22)) {
+            return Double.NaN;
+        }
+        final double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static String toString(final byte[] buffer, final int start, final int end) {
+        return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,148 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+
+/**
+ * Consumer of a rate-limited subscription passing on one object per device and interval<br>
+ * <br>
+ * The intervals are fixed slots of the monotonic clock, so a device yields at most one object per interval however
+ * fast it reports. Objects are counted when they arrive at the dispatching thread. Dispatching is never concurrent, so
+ * the state needs no locking.
+ */
+final class Decimator implements Consumer<Object> {
+
+    private final Consumer<Object> target;
+
+    private final EDecimation decimation;
+
+    private final long interval;
+
+    // whether the parser reuses the objects, kept objects are copied then
+    private final BooleanSupplier reused;
+
+    private final Class<?> type;
+
+    private final Map<String, Window> windows = new HashMap<String, Window>();
+
+    /**
+     * @param target
+     *            the consumer of the subscription
+     * @param type
+     *            the subscribed class
+     * @param decimation
+     *            which objects to pass on
+     * @param interval
+     *            the length of the intervals in nanoseconds
+     * @param reused
+     *            whether the parser reuses objects
+     */
+    @SuppressWarnings("unchecked")
+    Decimator(final Consumer<?> target, final Class<?> type, final EDecimation decimation, final long interval,
+            final BooleanSupplier reused) {
+        if (decimation == null) {
+            throw new IllegalArgumentException("decimation can not be null!");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Illegal interval: " + interval);
+        }
+        if ((decimation == EDecimation.Average) && (Averager.forType(type) == null)) {
+            throw new IllegalArgumentException("Objects of " + type.getName() + " can not be averaged");
+        }
+        this.target = (Consumer<Object>) target;
+        this.type = type;
+        this.decimation = decimation;
+        this.interval = interval;
+        this.reused = reused;
+    }
+
+    /**
+     * @return the consumer of the subscription
+     */
+    Consumer<?> getTarget() {
+        return this.target;
+    }
+
+    @Override
+    public void accept(final Object object) {
+        final long slot = Math.floorDiv(System.nanoTime(), this.interval);
+        final String device = GPSdEndpoint.deviceOf((IGPSObject) object);
+        Window window = this.windows.get(device);
+        if (window == null) {
+            window = new Window(this.decimation == EDecimation.Average ? Averager.forType(this.type) : null);
+            window.slot = slot - 1;
+            this.windows.put(device, window);
+        }
+        if (slot != window.slot) {
+            // the previous interval of this device is complete
+            window.slot = slot;
+            this.emit(window);
+            if (this.decimation == EDecimation.KeepFirst) {
+                this.target.accept(object);
+                return;
+            }
+        } else if (this.decimation == EDecimation.KeepFirst) {
+            return;
+        }
+        final IGPSObject kept = this.reused.getAsBoolean() ? GPSdEndpoint.copyOf((IGPSObject) object)
+                : (IGPSObject) object;
+        if (window.averager != null) {
+            window.averager.add(kept);
+        } else {
+            window.last = kept;
+        }
+    }
+
+    private void emit(final Window window) {
+        if (window.averager != null) {
+            if (!window.averager.isEmpty()) {
+                this.target.accept(window.averager.result());
+            }
+        } else if (window.last != null) {
+            final IGPSObject last = window.last;
+            window.last = null;
+            this.target.accept(last);
+        }
+    }
+
+    private static final class Window {
+
+        // the interval the objects were received in
+        long slot;
+
+        // the object to pass on for KeepLast
+        IGPSObject last;
+
+        // the mean to pass on for Average
+        final Averager<?> averager;
+
+        Window(final Averager<?> averager) {
+            this.averager = averager;
+        }
+    }
+}
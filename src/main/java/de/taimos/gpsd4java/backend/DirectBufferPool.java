@@ -0,0 +1,64 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of the direct buffers raw data is read into<br>
+ * <br>
+ * Allocating direct buffers is expensive and they are only freed by the garbage collector, so they are shared by all
+ * endpoints. Taking and returning a buffer creates no garbage.
+ */
+final class DirectBufferPool {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    // buffers kept for reuse, more are allocated when needed and dropped when returned
+    private static final int MAX_POOLED = 16;
+
+    private static final BlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED);
+
+    private DirectBufferPool() {
+        // static only
+    }
+
+    /**
+     * @return a cleared buffer of {@link #BUFFER_SIZE} bytes
+     */
+    static ByteBuffer acquire() {
+        final ByteBuffer buffer = POOL.poll();
+        return (buffer != null) ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * @param buffer
+     *            a buffer taken from {@link #acquire()}, not to be used afterwards
+     */
+    static void release(final ByteBuffer buffer) {
+        ((Buffer) buffer).clear();
+        POOL.offer(buffer);
+    }
+}
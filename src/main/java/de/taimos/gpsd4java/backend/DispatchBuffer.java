@@ -0,0 +1,266 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+
+/**
+ * Bounded ring buffer between the thread reading from GPSd and the thread calling the listeners<br>
+ * <br>
+ * The slots are allocated once. There is a single producer, the socket or selector thread of the endpoint, and a
+ * single consumer, the dispatch thread owned by this buffer.
+ */
+final class DispatchBuffer implements Dispatcher, Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DispatchBuffer.class);
+
+    private final GPSdEndpoint endpoint;
+
+    private final EOverflowPolicy policy;
+
+    private final IGPSObject[] slots;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition notEmpty = this.lock.newCondition();
+
+    private final Condition notFull = this.lock.newCondition();
+
+    // index of the oldest buffered object
+    private int head;
+
+    private int size;
+
+    private boolean running;
+
+    private Thread thread;
+
+    private volatile long dropped;
+
+    private volatile int highWaterMark;
+
+    DispatchBuffer(final GPSdEndpoint endpoint, final int capacity, final EOverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("policy can not be null!");
+        }
+        this.endpoint = endpoint;
+        this.policy = policy;
+        this.slots = new IGPSObject[capacity];
+    }
+
+    /**
+     * start the dispatch thread
+     *
+     * @param threadFactory
+     *            the factory to create the thread or <code>null</code> to use a platform thread
+     * @param daemon
+     *            whether a platform thread is a daemon
+     */
+    @Override
+    public void start(final ThreadFactory threadFactory, final boolean daemon) {
+        this.lock.lock();
+        try {
+            if (this.running) {
+                return;
+            }
+            this.running = true;
+            if (threadFactory == null) {
+                this.thread = new Thread(this, "GPS Dispatch Thread");
+                this.thread.setDaemon(daemon);
+            } else {
+                this.thread = threadFactory.newThread(this);
+            }
+            this.thread.start();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * stop the dispatch thread and discard the buffered objects
+     */
+    @Override
+    public void stop() {
+        this.lock.lock();
+        try {
+            this.running = false;
+            this.thread = null;
+            this.clear();
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * add an object, applying the overflow policy if the buffer is full
+     *
+     * @param object
+     *            the object to dispatch
+     */
+    @Override
+    public void put(final IGPSObject object) {
+        this.lock.lock();
+        try {
+            if (this.size == this.slots.length) {
+                switch (this.policy) {
+                    case Block:
+                        while (this.running && (this.size == this.slots.length)) {
+                            this.notFull.awaitUninterruptibly();
+                        }
+                        if (!this.running) {
+                            return;
+                        }
+                        break;
+                    case DropNewest:
+                        this.dropped++;
+                        return;
+                    case KeepLatestPerClass:
+                        this.dropped++;
+                        if (this.replaceNewest(object)) {
+                            return;
+                        }
+                        this.removeAt(0);
+                        break;
+                    case DropOldest:
+                    default:
+                        this.removeAt(0);
+                        this.dropped++;
+                        break;
+                }
+            }
+            this.slots[(this.head + this.size) % this.slots.length] = object;
+            this.size++;
+            if (this.size > this.highWaterMark) {
+                this.highWaterMark = this.size;
+            }
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        final Thread self = Thread.currentThread();
+        while (true) {
+            final IGPSObject object;
+            this.lock.lock();
+            try {
+                while ((this.size == 0) && (this.thread == self)) {
+                    this.notEmpty.awaitUninterruptibly();
+                }
+                if (this.thread != self) {
+                    return;
+                }
+                object = this.slots[this.head];
+                this.slots[this.head] = null;
+                this.head = (this.head + 1) % this.slots.length;
+                this.size--;
+                this.notFull.signal();
+            } finally {
+                this.lock.unlock();
+            }
+            try {
+                this.endpoint.dispatch(object);
+            } catch (final RuntimeException e) {
+                DispatchBuffer.LOG.warn("Problem encountered while handling object", e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of objects currently buffered
+     */
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of objects dropped by the overflow policy
+     */
+    @Override
+    public long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * @return the highest number of objects buffered at once
+     */
+    @Override
+    public int getHighWaterMark() {
+        return this.highWaterMark;
+    }
+
+    /*
+     * replace the newest buffered object of the same message type in its slot, lock held
+     */
+    private boolean replaceNewest(final IGPSObject object) {
+        for (int i = this.size - 1; i >= 0; i--) {
+            final int index = (this.head + i) % this.slots.length;
+            if (GPSdEndpoint.typeOf(this.slots[index]) == GPSdEndpoint.typeOf(object)) {
+                this.slots[index] = object;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * remove the object at the given position counted from the head, lock held
+     */
+    private void removeAt(final int index) {
+        for (int i = index; i > 0; i--) {
+            this.slots[(this.head + i) % this.slots.length] = this.slots[(this.head + i - 1) % this.slots.length];
+        }
+        this.slots[this.head] = null;
+        this.head = (this.head + 1) % this.slots.length;
+        this.size--;
+    }
+
+    private void clear() {
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = null;
+        }
+        this.head = 0;
+        this.size = 0;
+    }
+}
@@ -0,0 +1,71 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.ThreadFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+
+/**
+ * Hands objects from the thread reading from GPSd to a dispatch thread calling the listeners
+ *
+ * @see DispatchBuffer
+ * @see ConflatingDispatcher
+ */
+interface Dispatcher {
+
+    /**
+     * start the dispatch thread
+     *
+     * @param threadFactory
+     *            the factory to create the thread or <code>null</code> to use a platform thread
+     * @param daemon
+     *            whether a platform thread is a daemon
+     */
+    void start(ThreadFactory threadFactory, boolean daemon);
+
+    /**
+     * stop the dispatch thread and discard the waiting objects
+     */
+    void stop();
+
+    /**
+     * @param object
+     *            the object to dispatch
+     */
+    void put(IGPSObject object);
+
+    /**
+     * @return the number of objects currently waiting
+     */
+    int size();
+
+    /**
+     * @return the number of objects dropped or replaced before they were dispatched
+     */
+    long getDropped();
+
+    /**
+     * @return the highest number of objects waiting at once
+     */
+    int getHighWaterMark();
+}
@@ -0,0 +1,44 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Which objects a rate-limited subscription receives from every interval
+ *
+ * @see GPSdEndpoint#subscribe(Class, EDecimation, long, java.util.concurrent.TimeUnit, java.util.function.Consumer)
+ */
+public enum EDecimation {
+
+    /**
+     * the first object of every interval, passed on at once
+     */
+    KeepFirst,
+    /**
+     * the last object of every interval, passed on when the first object of a later interval arrives
+     */
+    KeepLast,
+    /**
+     * the mean of the objects of every interval, passed on when the first object of a later interval arrives. Only
+     * supported for {@link de.taimos.gpsd4java.types.TPVObject}s and {@link de.taimos.gpsd4java.types.ATTObject}s.
+     */
+    Average;
+}
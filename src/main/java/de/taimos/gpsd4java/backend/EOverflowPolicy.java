@@ -0,0 +1,49 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * What to do when the dispatch buffer of a {@link GPSdEndpoint} is full
+ *
+ * @see GPSdEndpoint#setDispatchBuffer(int, EOverflowPolicy)
+ */
+public enum EOverflowPolicy {
+
+    /**
+     * wait until the listeners made room, reading from the socket stops meanwhile
+     */
+    Block,
+    /**
+     * drop the oldest buffered object to make room for the new one
+     */
+    DropOldest,
+    /**
+     * drop the new object
+     */
+    DropNewest,
+    /**
+     * replace the newest buffered object of the same class with the new one, keeping its place in the buffer. The
+     * oldest buffered object is dropped if there is none of the same class.
+     */
+    KeepLatestPerClass;
+}
@@ -21,27 +21,50 @@ package de.taimos.gpsd4java.backend;
  * #L%
  */
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
-import java.net.Socket;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.JsonObject;
-
 import de.taimos.gpsd4java.api.IObjectListener;
+import de.taimos.gpsd4java.api.ObjectListener;
+import de.taimos.gpsd4java.api.RawListener;
 import de.taimos.gpsd4java.types.ATTObject;
 import de.taimos.gpsd4java.types.DeviceObject;
 import de.taimos.gpsd4java.types.DevicesObject;
+import de.taimos.gpsd4java.types.EParseError;
+import de.taimos.gpsd4java.types.GSTObject;
+import de.taimos.gpsd4java.types.IGPSField;
 import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
 import de.taimos.gpsd4java.types.PollObject;
 import de.taimos.gpsd4java.types.SKYObject;
 import de.taimos.gpsd4java.types.TPVObject;
@@ -58,9 +81,37 @@ public class GPSdEndpoint {
 
     private static final Logger LOG = LoggerFactory.getLogger(GPSdEndpoint.class);
 
-    private Socket socket;
+    // the types a StreamingResultParser can skip fields of
+    private static final List<Class<? extends IGPSObject>> PROJECTED_TYPES = Arrays.asList(TPVObject.class,
+            SKYObject.class, GSTObject.class, ATTObject.class);
+
+    // a corrupt feed logs at most one warning in this interval
+    private static final long PARSE_ERROR_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    // members added to the WATCH command for the NMEA and raw watch modes
+    private static final String WATCH_NMEA = "\"nmea\":true";
+
+    private static final String WATCH_RAW = "\"raw\":2";
+
+    // start of the response to a WATCH command, found in the raw data when raw watch mode ends
+    private static final byte[] WATCH_RESPONSE = "{\"class\":\"WATCH\"".getBytes(StandardCharsets.US_ASCII);
+
+    // message type of each runtime class, e.g. TPVObject for the TPV objects decoded on demand
+    private static final ClassValue<Class<?>> MESSAGE_TYPES = new ClassValue<Class<?>>() {
+
+        @Override
+        protected Class<?> computeValue(final Class<?> type) {
+            Class<?> messageType = type;
+            while (IGPSObject.class.isAssignableFrom(messageType.getSuperclass())) {
+                messageType = messageType.getSuperclass();
+            }
+            return messageType;
+        }
+    };
 
-    private BufferedReader in;
+    private final GPSdTransport transport;
+
+    private InputStream in;
 
     private BufferedWriter out;
 
@@ -68,21 +119,67 @@ public class GPSdEndpoint {
 
     private final boolean daemon;
 
-    private final List<IObjectListener> listeners = new ArrayList<IObjectListener>(1);
+    private final GPSdEndpointGroup group;
+
+    private final ListenerRegistry listeners = new ListenerRegistry();
+
+    // lines dropped without parsing because nobody wanted their class, indexed like MessageClassScanner
+    private final AtomicLongArray skippedLines = new AtomicLongArray(MessageClassScanner.size());
+
+    // lines dropped without parsing because the parser has no decoder for their class, by class name
+    private final Map<String, AtomicLong> skippedOtherLines = new ConcurrentHashMap<String, AtomicLong>();
+
+    // lines that could not be parsed, indexed by EParseError
+    private final AtomicLongArray parseErrors = new AtomicLongArray(EParseError.values().length);
 
-    private IGPSObject asyncResult = null;
+    // parse errors not logged since the last warning
+    private final AtomicLong unloggedParseErrors = new AtomicLong();
 
-    private final Object asyncMutex = new Object();
+    private volatile long nextParseErrorLog = System.nanoTime();
 
-    private final Object asyncWaitMutex = new Object();
+    // requests waiting for a response, by response class in the order they were sent
+    private final Map<Class<?>, Queue<CompletableFuture<?>>> pendingRequests = new ConcurrentHashMap<Class<?>, Queue<CompletableFuture<?>>>();
+
+    private final Lock asyncMutex = new ReentrantLock();
+
+    private volatile ThreadFactory threadFactory;
+
+    private volatile Dispatcher dispatcher;
+
+    private volatile boolean started;
+
+    private volatile boolean reuseObjects;
+
+    private volatile ParallelParser parallelParser;
 
     private final AbstractResultParser resultParser;
 
+    // the result parser specialized for the protocol revision of the connected GPSd
+    private volatile AbstractResultParser protocolParser;
+
     private String server;
 
     private int port;
 
-    private String lastWatch;
+    // decodes the sentences of NMEA watch mode, created on the first sentence after connecting
+    private volatile NMEAParser nmeaParser;
+
+    private final Consumer<IGPSObject> nmeaConsumer = this::handleNMEA;
+
+    private volatile RawListener rawListener;
+
+    // raw watch mode was requested, the stream switches to raw data after the next WATCH line and back to lines at
+    // the first WATCH response after the request was withdrawn
+    private volatile boolean rawRequested;
+
+    // whether the data received is raw data instead of lines, only changed by the reading thread
+    private volatile boolean raw;
+
+    // number of bytes at the end of the last raw data held back because they may start the WATCH response ending raw
+    // mode, only used by the reading thread
+    private int rawResponseMatch;
+
+    private volatile String lastWatch;
 
     private AtomicLong retryInterval = new AtomicLong(1000);
 
@@ -100,21 +197,60 @@ public class GPSdEndpoint {
      */
     public GPSdEndpoint(final String server, final int port, final AbstractResultParser resultParser,
             final boolean daemon) {
+        this(server, port, resultParser, daemon, null);
+    }
+
+    /**
+     * Instantiate this class to connect to GPSd over the given transport, e.g. a unix domain socket
+     *
+     * @param transport
+     *            the transport, see {@link GPSdTransport#unixSocket(String)}
+     * @param resultParser
+     *            the result parser
+     * @param daemon
+     *            whether to start the underlying socket thread as a daemon, as defined in {@link Thread#setDaemon}
+     */
+    public GPSdEndpoint(final GPSdTransport transport, final AbstractResultParser resultParser, final boolean daemon) {
+        this(transport, null, -1, resultParser, daemon, null);
+    }
+
+    /**
+     * Instantiate this class to connect to GPSd over the given transport, e.g. a unix domain socket
+     *
+     * @param transport
+     *            the transport, see {@link GPSdTransport#unixSocket(String)}
+     * @param resultParser
+     *            the result parser
+     */
+    public GPSdEndpoint(final GPSdTransport transport, final AbstractResultParser resultParser) {
+        this(transport, resultParser, true);
+    }
+
+    /*
+     * endpoint served by the given group instead of an own socket thread
+     */
+    GPSdEndpoint(final String server, final int port, final AbstractResultParser resultParser, final boolean daemon,
+            final GPSdEndpointGroup group) {
+        this(new TcpTransport(server, port), server, port, resultParser, daemon, group);
+    }
+
+    private GPSdEndpoint(final GPSdTransport transport, final String server, final int port,
+            final AbstractResultParser resultParser, final boolean daemon, final GPSdEndpointGroup group) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport can not be null!");
+        }
+        this.transport = transport;
         this.server = server;
         this.port = port;
-        if (server == null) {
-            throw new IllegalArgumentException("server can not be null!");
-        }
-        if ((port < 0) || (port > 65535)) {
-            throw new IllegalArgumentException("Illegal port number: " + port);
-        }
         if (resultParser == null) {
             throw new IllegalArgumentException("resultParser can not be null!");
         }
 
         this.resultParser = resultParser;
+        this.protocolParser = resultParser;
 
         this.daemon = daemon;
+        this.group = group;
     }
 
     /**
@@ -150,7 +286,16 @@ public class GPSdEndpoint {
      * start the endpoint
      */
     public void start() {
-        this.listenThread = new SocketThread(this.in, this, this.resultParser, this.daemon);
+        this.started = true;
+        final Dispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            dispatcher.start(this.threadFactory, this.daemon);
+        }
+        if (this.group != null) {
+            this.group.connect(this);
+            return;
+        }
+        this.listenThread = new SocketThread(this.in, this, this.resultParser, this.daemon, this.threadFactory);
         this.listenThread.start();
     }
 
@@ -159,21 +304,32 @@ public class GPSdEndpoint {
      */
     public void stop() {
 
+        if (this.group != null) {
+            this.group.disconnect(this);
+        }
+
+        // halt first, so the socket thread does not try to reconnect
+        if (this.listenThread != null) {
+            this.listenThread.halt();
+        }
+
         try {
-            if (this.socket != null) {
-                this.socket.close();
-            }
+            this.transport.close();
         } catch (final IOException e1) {
             GPSdEndpoint.LOG.debug("Close forced: " + e1.getMessage());
         }
 
         this.listeners.clear();
-
-        if (this.listenThread != null) {
-            this.listenThread.halt();
-        }
+        this.updateProjections();
+        this.handleConnectionLost();
 
         this.listenThread = null;
+
+        final Dispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+        this.started = false;
     }
 
     /**
@@ -206,14 +362,123 @@ public class GPSdEndpoint {
      *             on IO error in socket
      */
     public WatchObject watch(final boolean enable, final boolean dumpData, final String device) throws IOException {
-        JsonObject watch = new JsonObject();
-        watch.addProperty("class", "WATCH");
-        watch.addProperty("enable", enable);
-        watch.addProperty("json", dumpData);
+        return this.syncCommand(this.watchAsync(enable, dumpData, device));
+    }
+
+    /**
+     * send WATCH command without waiting for the response
+     *
+     * @param enable
+     *            enable/disable watch mode
+     * @param dumpData
+     *            enable/disable dumping of data
+     * @return future completed with the {@link WatchObject}
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<WatchObject> watchAsync(final boolean enable, final boolean dumpData) {
+        return this.watchAsync(enable, dumpData, null);
+    }
+
+    /**
+     * send WATCH command without waiting for the response<br>
+     * <br>
+     * The future is completed on the socket thread, use the async methods of {@link CompletableFuture} for long
+     * running actions. It fails with an {@link IOException} if the endpoint is not connected or the connection is
+     * lost before the response arrives.
+     *
+     * @param enable
+     *            enable/disable watch mode
+     * @param dumpData
+     *            enable/disable dumping of data
+     * @param device
+     *            If present, enable watching only of the specified device rather than all devices
+     * @return future completed with the {@link WatchObject}
+     */
+    public CompletableFuture<WatchObject> watchAsync(final boolean enable, final boolean dumpData,
+            final String device) {
+        return this.watchAsync(enable, dumpData, null, device);
+    }
+
+    /**
+     * send WATCH command to receive NMEA sentences instead of JSON messages<br>
+     * <br>
+     * The GGA, RMC, GSA, GSV, VTG and GST sentences are decoded into the {@link TPVObject}s, {@link SKYObject}s and
+     * {@link GSTObject}s passed to the listeners, see {@link NMEAParser}. Their device is not known.
+     *
+     * @param enable
+     *            enable/disable NMEA watch mode
+     * @return {@link WatchObject}
+     * @throws IOException
+     *             on IO error in socket
+     */
+    public WatchObject watchNMEA(final boolean enable) throws IOException {
+        return this.syncCommand(this.watchNMEAAsync(enable, null));
+    }
+
+    /**
+     * send WATCH command to receive NMEA sentences without waiting for the response
+     *
+     * @param enable
+     *            enable/disable NMEA watch mode
+     * @param device
+     *            If present, enable watching only of the specified device rather than all devices
+     * @return future completed with the {@link WatchObject}
+     * @see #watchNMEA(boolean)
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<WatchObject> watchNMEAAsync(final boolean enable, final String device) {
+        return this.watchAsync(enable, false, enable ? WATCH_NMEA : null, device);
+    }
+
+    /**
+     * send WATCH command to receive the data of the receivers as they send it, e.g. UBX or SiRF binary<br>
+     * <br>
+     * The data is passed to the {@link RawListener} set with {@link #setRawListener(RawListener)} without decoding or
+     * copying it. While raw watch mode is enabled no objects are passed to the listeners and no responses to other
+     * commands are received.
+     *
+     * @param enable
+     *            enable/disable raw watch mode
+     * @return {@link WatchObject}
+     * @throws IOException
+     *             on IO error in socket
+     */
+    public WatchObject watchRaw(final boolean enable) throws IOException {
+        return this.syncCommand(this.watchRawAsync(enable, null));
+    }
+
+    /**
+     * send WATCH command to receive raw data without waiting for the response
+     *
+     * @param enable
+     *            enable/disable raw watch mode
+     * @param device
+     *            If present, enable watching only of the specified device rather than all devices
+     * @return future completed with the {@link WatchObject}
+     * @see #watchRaw(boolean)
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<WatchObject> watchRawAsync(final boolean enable, final String device) {
+        return this.watchAsync(enable, false, enable ? WATCH_RAW : null, device);
+    }
+
+    private CompletableFuture<WatchObject> watchAsync(final boolean enable, final boolean dumpData,
+            final String mode, final String device) {
+        final StringBuilder watch = new StringBuilder("{\"class\":\"WATCH\"");
+        watch.append(",\"enable\":").append(enable);
+        watch.append(",\"json\":").append(dumpData);
+        if (mode != null) {
+            watch.append(',').append(mode);
+        }
         if (device != null) {
-            watch.addProperty("device", device);
+            watch.append(",\"device\":").append(RawJson.quote(device));
         }
-        return this.syncCommand("?WATCH=" + watch.toString(), WatchObject.class);
+        final String command = "?WATCH=" + watch.append('}');
+        this.lastWatch = command;
+        // the reading thread switches modes when the response to this command arrives, the raw data follows it and
+        // the lines after leaving raw mode follow it
+        this.rawRequested = enable && WATCH_RAW.equals(mode);
+        return this.asyncCommand(command, WatchObject.class);
     }
 
     /**
@@ -224,7 +489,17 @@ public class GPSdEndpoint {
      *             on IO error in socket
      */
     public PollObject poll() throws IOException {
-        return this.syncCommand("?POLL;", PollObject.class);
+        return this.syncCommand(this.pollAsync());
+    }
+
+    /**
+     * Poll GPSd for Message without waiting for the response
+     *
+     * @return future completed with the {@link PollObject}
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<PollObject> pollAsync() {
+        return this.asyncCommand("?POLL;", PollObject.class);
     }
 
     /**
@@ -235,18 +510,68 @@ public class GPSdEndpoint {
      *             on IO error in socket
      */
     public VersionObject version() throws IOException {
-        return this.syncCommand("?VERSION;", VersionObject.class);
+        return this.syncCommand(this.versionAsync());
+    }
+
+    /**
+     * Poll GPSd version without waiting for the response
+     *
+     * @return future completed with the {@link VersionObject}
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<VersionObject> versionAsync() {
+        return this.asyncCommand("?VERSION;", VersionObject.class);
+    }
+
+    /**
+     * Poll GPSd devices
+     *
+     * @return {@link DevicesObject}
+     * @throws IOException
+     *             on IO error in socket
+     */
+    public DevicesObject devices() throws IOException {
+        return this.syncCommand(this.devicesAsync());
+    }
+
+    /**
+     * Poll GPSd devices without waiting for the response. The response is also passed to the listeners.
+     *
+     * @return future completed with the {@link DevicesObject}
+     * @see #watchAsync(boolean, boolean, String)
+     */
+    public CompletableFuture<DevicesObject> devicesAsync() {
+        return this.asyncCommand("?DEVICES;", DevicesObject.class);
     }
 
     // TODO implement rest of commands
     // ########################################################
 
     /**
+     * Add a listener called on the socket thread. Only the methods a subclass of {@link ObjectListener} overrides are
+     * called.
+     *
      * @param listener
      *            the listener to add
      */
     public void addListener(final IObjectListener listener) {
-        this.listeners.add(listener);
+        this.listeners.addListener(listener);
+        this.updateProjections();
+    }
+
+    /**
+     * Add a listener called by tasks of the given executor instead of the socket thread. The objects are queued in a
+     * mailbox of the listener and handled in the order they arrived, one at a time. A slow listener only delays its
+     * own mailbox. The mailbox is not bounded, use {@link #getMailboxDepth(IObjectListener)} to watch it.
+     *
+     * @param listener
+     *            the listener to add
+     * @param executor
+     *            the executor running the listener
+     */
+    public void addListener(final IObjectListener listener, final Executor executor) {
+        this.listeners.addListener(listener, executor);
+        this.updateProjections();
     }
 
     /**
@@ -254,98 +579,533 @@ public class GPSdEndpoint {
      *            the listener to remove
      */
     public void removeListener(final IObjectListener listener) {
-        this.listeners.remove(listener);
+        this.listeners.removeListener(listener);
+        this.updateProjections();
+    }
+
+    /**
+     * @param listener
+     *            a listener added with an executor
+     * @return the number of objects waiting in the mailbox of the listener, 0 if the listener has no mailbox
+     */
+    public int getMailboxDepth(final IObjectListener listener) {
+        return this.listeners.getMailboxDepth(listener);
+    }
+
+    /**
+     * Subscribe to objects of a type. The consumer is called on the socket thread for every received object that is an
+     * instance of the type, including responses to commands. Subscriptions can be made and removed at any time.
+     *
+     * @param type
+     *            the type of objects, e.g. {@link TPVObject}
+     * @param consumer
+     *            the consumer to call
+     */
+    public <T extends IGPSObject> void subscribe(final Class<T> type, final Consumer<? super T> consumer) {
+        this.subscribe(type, null, consumer);
+    }
+
+    /**
+     * Subscribe to objects of a type, only needing some of their fields. If all consumers of a type declare the fields
+     * they need, a {@link StreamingResultParser} skips the other fields of TPV, SKY, GST and ATT messages and leaves
+     * them unset (<code>Double.NaN</code>, <code>null</code> or empty). Consumers may still receive objects with all
+     * fields, e.g. responses to commands.
+     *
+     * @param type
+     *            the type of objects, e.g. {@link TPVObject}
+     * @param fields
+     *            the fields of the type the consumer needs, e.g. <code>EnumSet.of(ETPVField.Latitude,
+     *            ETPVField.Longitude)</code>, or <code>null</code> for all fields
+     * @param consumer
+     *            the consumer to call
+     */
+    public <T extends IGPSObject> void subscribe(final Class<T> type, final Set<? extends IGPSField> fields,
+            final Consumer<? super T> consumer) {
+        this.listeners.subscribe(type, fields, consumer);
+        this.updateProjections();
+    }
+
+    /**
+     * Subscribe to objects of a type at a lower rate. Time is divided into intervals of the given length, and the
+     * consumer receives at most one object per device and interval, chosen by the decimation. With
+     * {@link EDecimation#KeepLast} and {@link EDecimation#Average} the object of an interval is passed on when the
+     * next object of the device arrives in a later interval.
+     *
+     * @param type
+     *            the type of objects, e.g. {@link TPVObject}
+     * @param decimation
+     *            which object of an interval to pass on
+     * @param interval
+     *            the length of the intervals, e.g. 1 second for 1 Hz
+     * @param unit
+     *            the unit of the interval
+     * @param consumer
+     *            the consumer to call
+     * @throws IllegalArgumentException
+     *             if the interval is not positive or the objects can not be averaged
+     */
+    public <T extends IGPSObject> void subscribe(final Class<T> type, final EDecimation decimation,
+            final long interval, final TimeUnit unit, final Consumer<? super T> consumer) {
+        this.listeners.subscribe(type, decimation, unit.toNanos(interval), consumer);
+        this.updateProjections();
+    }
+
+    /**
+     * @param type
+     *            the type given to {@link #subscribe(Class, Consumer)} or {@link #subscribe(Class, Set, Consumer)}
+     * @param consumer
+     *            the consumer to remove
+     */
+    public void unsubscribe(final Class<? extends IGPSObject> type, final Consumer<?> consumer) {
+        this.listeners.unsubscribe(type, consumer);
+        this.updateProjections();
+    }
+
+    /*
+     * let the parser skip the fields no consumer needs
+     */
+    private void updateProjections() {
+        this.updateProjections(this.resultParser);
+        final AbstractResultParser current = this.protocolParser;
+        if (current != this.resultParser) {
+            this.updateProjections(current);
+        }
+    }
+
+    private void updateProjections(final AbstractResultParser target) {
+        if (target instanceof StreamingResultParser) {
+            final StreamingResultParser parser = (StreamingResultParser) target;
+            for (final Class<? extends IGPSObject> type : PROJECTED_TYPES) {
+                parser.setProjection(type, this.listeners.getProjection(type));
+            }
+        }
     }
 
     // ########################################################
 
     /*
-     * send command to GPSd and wait for response
-     */
-    private <T extends IGPSObject> T syncCommand(final String command, final Class<T> responseClass)
-            throws IOException {
-        synchronized (this.asyncMutex) {
-            if (out != null) {
-                this.out.write(command + "\n");
-                this.out.flush();
+     * wait one second for the response of a command, null if it does not arrive in time or we are not connected
+     */
+    private <T extends IGPSObject> T syncCommand(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(1000, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            // withdraw the request, a late response must not complete the request of the next command
+            future.cancel(false);
+            return null;
+        } catch (final InterruptedException e) {
+            GPSdEndpoint.LOG.info("Interrupted while waiting for result", e);
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            return null;
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof NotConnectedException) {
+                return null;
             }
-            if (responseClass == WatchObject.class) {
-                lastWatch = command;
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-            while (true) {
-                // wait for awaited message
-                // FIXME possible infinite loop if expected result arrives but new result overrides expected result
-                // before getting to this point.
-                final IGPSObject result = this.waitForResult();
-                if ((result == null) || result.getClass().equals(responseClass)) {
-                    return responseClass.cast(result);
+            throw new IOException("Command failed", e.getCause());
+        }
+    }
+
+    /*
+     * send command to GPSd, the returned future is completed by the next response of the given class
+     */
+    private <T extends IGPSObject> CompletableFuture<T> asyncCommand(final String command,
+            final Class<T> responseClass) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        this.asyncMutex.lock();
+        try {
+            // register before sending, the response may arrive before send returns
+            final Queue<CompletableFuture<?>> pending = this.pendingRequests(responseClass);
+            pending.add(future);
+            // a cancelled or failed request, e.g. after a timeout, no longer waits for a response
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    pending.remove(future);
+                }
+            });
+            try {
+                if (!this.send(command)) {
+                    pending.remove(future);
+                    future.completeExceptionally(new NotConnectedException());
                 }
+            } catch (final IOException e) {
+                pending.remove(future);
+                future.completeExceptionally(e);
             }
+        } finally {
+            this.asyncMutex.unlock();
         }
+        return future;
     }
 
     /*
      * send command without response
      */
     private void voidCommand(final String command) throws IOException {
-        synchronized (this.asyncMutex) {
+        this.asyncMutex.lock();
+        try {
+            this.send(command);
+        } finally {
+            this.asyncMutex.unlock();
+        }
+    }
+
+    /*
+     * write command to the socket, commands are dropped while not connected
+     */
+    private boolean send(final String command) throws IOException {
+        if (this.group != null) {
+            return this.group.send(this, command);
+        } else if (this.out != null) {
             this.out.write(command + "\n");
             this.out.flush();
+            return true;
         }
+        return false;
+    }
+
+    private Queue<CompletableFuture<?>> pendingRequests(final Class<?> responseClass) {
+        Queue<CompletableFuture<?>> pending = this.pendingRequests.get(responseClass);
+        if (pending == null) {
+            pending = new ConcurrentLinkedQueue<CompletableFuture<?>>();
+            final Queue<CompletableFuture<?>> existing = this.pendingRequests.putIfAbsent(responseClass, pending);
+            if (existing != null) {
+                pending = existing;
+            }
+        }
+        return pending;
     }
 
     /*
-     * wait for a response for one second
-     */
-    private IGPSObject waitForResult() {
-        synchronized (this.asyncWaitMutex) {
-            if (this.asyncResult == null) {
-                try {
-                    this.asyncWaitMutex.wait(1000);
-                } catch (final InterruptedException e) {
-                    GPSdEndpoint.LOG.info("Interrupted while waiting for result", e);
-                }
+     * complete the oldest request waiting for an object of this class, skipping requests already done
+     */
+    @SuppressWarnings("unchecked")
+    private void completeRequest(final IGPSObject object) {
+        final Queue<CompletableFuture<?>> pending = this.pendingRequests.get(typeOf(object));
+        if (pending == null) {
+            return;
+        }
+        CompletableFuture<?> future;
+        while ((future = pending.poll()) != null) {
+            if (((CompletableFuture<IGPSObject>) future).complete(object)) {
+                return;
             }
-            final IGPSObject result = this.asyncResult;
-            this.asyncResult = null;
-            return result;
         }
     }
 
     /*
-     * handle incoming messages and dispatch them
+     * the connection was closed, no responses will arrive for the pending requests
      */
-    void handle(final IGPSObject object) {
-        if (object instanceof TPVObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleTPV((TPVObject) object);
+    void handleConnectionLost() {
+        for (final Queue<CompletableFuture<?>> pending : this.pendingRequests.values()) {
+            CompletableFuture<?> future;
+            while ((future = pending.poll()) != null) {
+                future.completeExceptionally(new IOException("Connection to GPSd lost"));
             }
-        } else if (object instanceof SKYObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleSKY((SKYObject) object);
+        }
+        // the next GPSd may run another version
+        this.protocolParser = this.resultParser;
+        // the rest of the cycle is lost
+        this.nmeaParser = null;
+        // a new connection starts with lines, a raw watch is requested again
+        this.raw = false;
+        this.rawResponseMatch = 0;
+    }
+
+    /*
+     * parse a line received from GPSd and dispatch it
+     */
+    void handleLine(final byte[] buffer, final int offset, final int length) throws ParseException {
+        if (NMEAParser.isSentence(buffer, offset, length)) {
+            this.handleSentence(buffer, offset, length);
+            return;
+        }
+        final int index = MessageClassScanner.scan(buffer, offset, length);
+        if (this.rawRequested && (index >= 0) && (MessageClassScanner.type(index) == WatchObject.class)) {
+            // checked on the reading thread, the lines may be parsed on other threads
+            this.raw = true;
+        }
+        if ((index >= 0) && !this.isWanted(MessageClassScanner.type(index))) {
+            this.skippedLines.incrementAndGet(index);
+            return;
+        }
+        if (index < 0) {
+            // e.g. TOFF or PPS, nobody can subscribe to them without a decoder
+            final String other = MessageClassScanner.scanOther(buffer, offset, length);
+            if ((other != null) && !this.protocolParser.isDecoded(other)) {
+                this.skipOther(other);
+                return;
             }
-        } else if (object instanceof ATTObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleATT((ATTObject) object);
+        }
+        final ParallelParser parser = this.parallelParser;
+        if (parser != null) {
+            parser.submit(this.protocolParser, buffer, offset, length);
+            return;
+        }
+        this.handle(this.protocolParser.parse(buffer, offset, length));
+    }
+
+    private void skipOther(final String className) {
+        AtomicLong count = this.skippedOtherLines.get(className);
+        if (count == null) {
+            count = new AtomicLong();
+            final AtomicLong existing = this.skippedOtherLines.putIfAbsent(className, count);
+            if (existing != null) {
+                count = existing;
             }
-        } else if (object instanceof SUBFRAMEObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleSUBFRAME((SUBFRAMEObject) object);
+        }
+        count.incrementAndGet();
+    }
+
+    /*
+     * whether the reading thread has to pass the received data to handleRaw instead of splitting it into lines
+     */
+    boolean isRaw() {
+        return this.raw;
+    }
+
+    /*
+     * pass raw data to the listener. After a WATCH command leaving raw mode the data is searched for the response, it
+     * and the data following it are added to the framer and the reading thread continues with lines.
+     */
+    void handleRaw(final ByteBuffer data, final LineFramer framer) {
+        if (this.rawRequested) {
+            this.handleRaw(data);
+            return;
+        }
+        final int position = data.position();
+        final int limit = data.limit();
+        int index = position;
+        if (this.rawResponseMatch > 0) {
+            // continue the response started at the end of the last data
+            int matched = this.rawResponseMatch;
+            while ((index < limit) && (matched < WATCH_RESPONSE.length)
+                    && (data.get(index) == WATCH_RESPONSE[matched])) {
+                index++;
+                matched++;
             }
-        } else if (object instanceof DevicesObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleDevices((DevicesObject) object);
+            if (matched == WATCH_RESPONSE.length) {
+                framer.fill(ByteBuffer.wrap(WATCH_RESPONSE, 0, this.rawResponseMatch));
+                this.endRaw(data, position, framer);
+                return;
             }
-        } else if (object instanceof DeviceObject) {
-            for (final IObjectListener l : this.listeners) {
-                l.handleDevice((DeviceObject) object);
+            if (index == limit) {
+                this.rawResponseMatch = matched;
+                return;
             }
-        } else {
-            // object was requested, so put it in the response object
-            synchronized (this.asyncWaitMutex) {
-                this.asyncResult = object;
-                this.asyncWaitMutex.notifyAll();
+            // the held back bytes were raw data, the response starts with the only '{' of the pattern
+            this.handleRaw(ByteBuffer.wrap(WATCH_RESPONSE, 0, this.rawResponseMatch));
+            this.rawResponseMatch = 0;
+        }
+        for (; index < limit; index++) {
+            if (data.get(index) != '{') {
+                continue;
+            }
+            int matched = 0;
+            while ((matched < WATCH_RESPONSE.length) && ((index + matched) < limit)
+                    && (data.get(index + matched) == WATCH_RESPONSE[matched])) {
+                matched++;
             }
+            if ((matched == WATCH_RESPONSE.length) || ((index + matched) == limit)) {
+                this.handleRaw(data, position, index);
+                if (matched == WATCH_RESPONSE.length) {
+                    this.endRaw(data, index, framer);
+                } else {
+                    // the response may continue in the next data
+                    this.rawResponseMatch = matched;
+                }
+                return;
+            }
+        }
+        this.handleRaw(data);
+    }
+
+    /*
+     * pass the raw data between the indexes to the listener
+     */
+    private void handleRaw(final ByteBuffer data, final int start, final int end) {
+        if (start < end) {
+            final int limit = data.limit();
+            ((Buffer) data).limit(end).position(start);
+            this.handleRaw(data);
+            ((Buffer) data).limit(limit);
+        }
+    }
+
+    /*
+     * continue with lines starting at the WATCH response in the data
+     */
+    private void endRaw(final ByteBuffer data, final int start, final LineFramer framer) {
+        ((Buffer) data).position(start);
+        framer.fill(data);
+        this.rawResponseMatch = 0;
+        this.raw = false;
+    }
+
+    /*
+     * pass raw data to the listener
+     */
+    private void handleRaw(final ByteBuffer data) {
+        final RawListener listener = this.rawListener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.handleRaw(data);
+        } catch (final RuntimeException e) {
+            GPSdEndpoint.LOG.warn("Problem encountered while handling raw data", e);
+        }
+    }
+
+    /*
+     * pass the data following the line that started raw mode to the listener
+     */
+    void handleRaw(final LineFramer framer) {
+        final ByteBuffer rest = framer.drain();
+        if (rest.hasRemaining()) {
+            this.handleRaw(rest, framer);
+        }
+    }
+
+    /*
+     * decode an NMEA sentence on the reading thread, the parser keeps the state of the cycle
+     */
+    private void handleSentence(final byte[] buffer, final int offset, final int length) throws ParseException {
+        if (!this.isWanted(TPVObject.class) && !this.isWanted(SKYObject.class) && !this.isWanted(GSTObject.class)) {
+            return;
+        }
+        NMEAParser parser = this.nmeaParser;
+        if (parser == null) {
+            parser = new NMEAParser(this.reuseObjects);
+            this.nmeaParser = parser;
+        }
+        parser.parse(buffer, offset, length, this.nmeaConsumer);
+    }
+
+    /*
+     * pass on an object decoded from NMEA sentences, after the lines still being parsed
+     */
+    private void handleNMEA(final IGPSObject object) {
+        final ParallelParser parser = this.parallelParser;
+        if (parser != null) {
+            parser.submitParsed(object);
+        } else {
+            this.handle(object);
+        }
+    }
+
+    /*
+     * count a line that could not be parsed and log it without flooding the log
+     */
+    void handleParseError(final ParseException e) {
+        this.parseErrors.incrementAndGet(e.getReason().ordinal());
+        GPSdEndpoint.LOG.debug("Problem encountered while parsing line", e);
+        final long now = System.nanoTime();
+        if ((now - this.nextParseErrorLog) < 0) {
+            this.unloggedParseErrors.incrementAndGet();
+            return;
+        }
+        this.nextParseErrorLog = now + PARSE_ERROR_LOG_INTERVAL;
+        final long unlogged = this.unloggedParseErrors.getAndSet(0);
+        if (unlogged > 0) {
+            GPSdEndpoint.LOG.warn("Problem encountered while parsing line ({}): {}, {} more since the last warning",
+                    e.getReason(), e.getMessage(), unlogged);
+        } else {
+            GPSdEndpoint.LOG.warn("Problem encountered while parsing line ({}): {}", e.getReason(), e.getMessage());
+        }
+    }
+
+    /*
+     * copy objects the parser may reuse, other objects are returned as they are
+     */
+    static IGPSObject copyOf(final IGPSObject object) {
+        if (object instanceof TPVObject) {
+            return ((TPVObject) object).copy();
+        }
+        if (object instanceof SKYObject) {
+            return ((SKYObject) object).copy();
+        }
+        return object;
+    }
+
+    /*
+     * the device an object belongs to, null if it has none
+     */
+    static String deviceOf(final IGPSObject object) {
+        if (object instanceof TPVObject) {
+            return ((TPVObject) object).getDevice();
+        } else if (object instanceof SKYObject) {
+            return ((SKYObject) object).getDevice();
+        } else if (object instanceof GSTObject) {
+            return ((GSTObject) object).getDevice();
+        } else if (object instanceof ATTObject) {
+            return ((ATTObject) object).getDevice();
+        } else if (object instanceof SUBFRAMEObject) {
+            return ((SUBFRAMEObject) object).getDevice();
+        } else if (object instanceof DeviceObject) {
+            return ((DeviceObject) object).getPath();
+        }
+        return null;
+    }
+
+    /*
+     * the message type of an object, the topmost class implementing IGPSObject
+     */
+    static Class<?> typeOf(final IGPSObject object) {
+        return MESSAGE_TYPES.get(object.getClass());
+    }
+
+    /*
+     * whether objects of this class are subscribed or requested
+     */
+    private boolean isWanted(final Class<?> type) {
+        // selects the parser for the protocol revision
+        if (type == VersionObject.class) {
+            return true;
+        }
+        if (this.listeners.hasSubscribers(type)) {
+            return true;
+        }
+        final Queue<CompletableFuture<?>> pending = this.pendingRequests.get(type);
+        return (pending != null) && !pending.isEmpty();
+    }
+
+    /*
+     * handle incoming messages and dispatch them
+     */
+    void handle(final IGPSObject object) {
+        if (object == null) {
+            return;
+        }
+        if (object instanceof VersionObject) {
+            final VersionObject version = (VersionObject) object;
+            this.protocolParser = this.resultParser.forProtocol((int) version.getProtocolMajor(),
+                    (int) version.getProtocolMinor());
+            // the parser may be a copy made before the last change of the subscriptions
+            this.updateProjections();
+        }
+        // complete the request if the object was requested
+        this.completeRequest(object);
+        if (!this.listeners.hasSubscribers(object.getClass())) {
+            return;
+        }
+        final Dispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            dispatcher.put(this.reuseObjects ? GPSdEndpoint.copyOf(object) : object);
+        } else {
+            this.dispatch(object);
+        }
+    }
+
+    /*
+     * pass an object to the listeners
+     */
+    void dispatch(final IGPSObject object) {
+        for (final Consumer<Object> consumer : this.listeners.get(object.getClass())) {
+            consumer.accept(object);
         }
     }
 
@@ -360,31 +1120,235 @@ public class GPSdEndpoint {
      * @throws JSONException
      */
     public void kickDevice(String path) throws IOException {
-        final JsonObject d = new JsonObject();
-        d.addProperty("class", "DEVICE");
-        d.addProperty("path", path);
-        this.voidCommand("?DEVICE=" + d);
+        this.voidCommand("?DEVICE={\"class\":\"DEVICE\",\"path\":" + RawJson.quote(path) + "}");
     }
 
     /**
      * Our socket thread got disconnect and is exiting.
      */
     void handleDisconnected() throws IOException {
-        synchronized (this.asyncMutex) {
-            if (socket != null) {
-                socket.close();
-            }
-            this.socket = new Socket(server, port);
-            this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream()));
-            this.out = new BufferedWriter(new OutputStreamWriter(this.socket.getOutputStream()));
+        this.asyncMutex.lock();
+        try {
+            this.transport.close();
+            this.transport.connect();
+            this.in = this.transport.getInputStream();
+            this.out = new BufferedWriter(new OutputStreamWriter(this.transport.getOutputStream()));
 
-            this.listenThread = new SocketThread(this.in, this, this.resultParser, this.daemon);
+            this.listenThread = new SocketThread(this.in, this, this.resultParser, this.daemon, this.threadFactory);
             this.listenThread.start();
             if (lastWatch != null) { // restore watch if we had one.
-                this.syncCommand(lastWatch, WatchObject.class);
+                this.asyncCommand(lastWatch, WatchObject.class);
+            }
+        } finally {
+            this.asyncMutex.unlock();
+        }
+
+    }
+
+    /*
+     * the group connected our channel, restore watch if we had one
+     */
+    void handleConnected() {
+        final String watch = this.lastWatch;
+        if (watch != null) {
+            this.asyncCommand(watch, WatchObject.class);
+        }
+    }
+
+    String getServer() {
+        return this.server;
+    }
+
+    int getPort() {
+        return this.port;
+    }
+
+    /**
+     * Set the factory creating the socket thread. The reader loop, the reconnect loop and the listener calls run on
+     * threads created by this factory. The daemon flag of the endpoint is ignored for threads created by the factory.
+     * Takes effect on the next (re)connect.
+     *
+     * @param threadFactory
+     *            the factory or <code>null</code> to use a platform thread
+     */
+    public void setThreadFactory(final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Run the socket thread on virtual threads if the runtime supports them (Java 21+).
+     *
+     * @return <code>true</code> if virtual threads are used, <code>false</code> if the runtime does not support them
+     */
+    public boolean useVirtualThreads() {
+        final ThreadFactory factory = VirtualThreads.newThreadFactory("GPS Socket Thread ");
+        if (factory == null) {
+            return false;
+        }
+        this.setThreadFactory(factory);
+        return true;
+    }
+
+    /**
+     * Set the listener receiving the data of raw watch mode, see {@link #watchRaw(boolean)}
+     *
+     * @param rawListener
+     *            the listener or <code>null</code> to drop raw data
+     */
+    public void setRawListener(final RawListener rawListener) {
+        this.rawListener = rawListener;
+    }
+
+    /**
+     * Reuse the TPV and SKY objects passed to the listeners instead of creating new ones for every message. The objects
+     * are only valid while the listener is called, use <code>copy()</code> to keep them. Listeners called through an
+     * executor or the dispatch buffer receive copies. Requires a {@link StreamingResultParser} that is not shared with
+     * other endpoints. Call before {@link #start()}.
+     *
+     * @param reuseObjects
+     *            <code>true</code> to reuse objects, <code>false</code> to create new ones (default)
+     */
+    public void setReuseObjects(final boolean reuseObjects) {
+        if (!(this.resultParser instanceof StreamingResultParser)) {
+            throw new IllegalStateException("Reusing objects requires a StreamingResultParser");
+        }
+        if (reuseObjects && (this.parallelParser != null)) {
+            throw new IllegalStateException("Reusing objects is not possible with parallel parsing");
+        }
+        ((StreamingResultParser) this.resultParser).setReuseObjects(reuseObjects);
+        this.listeners.setCopyQueued(reuseObjects);
+        this.reuseObjects = reuseObjects;
+    }
+
+    /**
+     * Parse the received lines on the given executor instead of the socket thread. The socket thread only splits the
+     * data into lines. The parsed objects are passed on in the order the lines arrived, on the executor thread that
+     * finished the oldest pending line, and never concurrently. The parser of this endpoint is called concurrently, the
+     * parsers of this library are thread-safe as long as they do not reuse objects. Must be called before
+     * {@link #start()}.
+     *
+     * @param executor
+     *            the executor parsing the lines, e.g. a {@link java.util.concurrent.ForkJoinPool}, or <code>null</code>
+     *            to parse on the socket thread (default)
+     * @param maxPending
+     *            the maximum number of lines being parsed or waiting for older lines, reading from GPSd blocks when it
+     *            is reached
+     */
+    public void setParallelParsing(final Executor executor, final int maxPending) {
+        if (this.started) {
+            throw new IllegalStateException("Endpoint is already started");
+        }
+        if (this.reuseObjects && (executor != null)) {
+            throw new IllegalStateException("Parallel parsing is not possible with reused objects");
+        }
+        this.parallelParser = (executor == null) ? null
+                : new ParallelParser(this, executor, maxPending);
+    }
+
+    /**
+     * @return the number of lines being parsed or waiting for older lines with parallel parsing
+     */
+    public int getPendingLines() {
+        final ParallelParser parser = this.parallelParser;
+        return (parser == null) ? 0 : parser.pending();
+    }
+
+    /**
+     * Lines of a message class nobody subscribed to or requested are dropped without parsing them, as well as lines of
+     * classes the parser has no decoder for, e.g. <code>TOFF</code>.
+     *
+     * @return the number of dropped lines by message class, e.g. <code>SKY</code>
+     */
+    public Map<String, Long> getSkippedLines() {
+        final Map<String, Long> skipped = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < this.skippedLines.length(); i++) {
+            final long count = this.skippedLines.get(i);
+            if (count > 0) {
+                skipped.put(MessageClassScanner.name(i), count);
             }
         }
+        for (final Map.Entry<String, AtomicLong> other : new TreeMap<String, AtomicLong>(this.skippedOtherLines)
+                .entrySet()) {
+            skipped.put(other.getKey(), other.getValue().get());
+        }
+        return skipped;
+    }
+
+    /**
+     * Lines that can not be parsed are counted and dropped. At most one warning is logged every ten seconds, the
+     * details of every error are logged at debug level.
+     *
+     * @return the number of lines that could not be parsed by reason
+     */
+    public Map<EParseError, Long> getParseErrors() {
+        final Map<EParseError, Long> errors = new EnumMap<EParseError, Long>(EParseError.class);
+        for (final EParseError reason : EParseError.values()) {
+            final long count = this.parseErrors.get(reason.ordinal());
+            if (count > 0) {
+                errors.put(reason, count);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Pass objects to the listeners on a separate dispatch thread, so slow listeners do not stall reading from GPSd.
+     * Objects are buffered in a bounded ring buffer, the policy decides what happens if it is full. Must be called
+     * before {@link #start()}. The dispatch thread is created by the thread factory of this endpoint if one is set.
+     *
+     * @param capacity
+     *            the number of buffered objects or 0 to call the listeners on the socket thread (default)
+     * @param policy
+     *            what to do if the buffer is full
+     */
+    public void setDispatchBuffer(final int capacity, final EOverflowPolicy policy) {
+        if (this.started) {
+            throw new IllegalStateException("Endpoint is already started");
+        }
+        this.dispatcher = (capacity == 0) ? null : new DispatchBuffer(this, capacity, policy);
+    }
+
+    /**
+     * Pass objects to the listeners on a separate dispatch thread that only receives the latest object per device and
+     * message class. An object replaces the one of the same device and class still waiting, so a slow listener skips
+     * stale fixes instead of falling behind. Objects of different devices or classes may be passed on in another order
+     * than they arrived. Replaced objects are counted by {@link #getDroppedObjects()}. Must be called before
+     * {@link #start()}, replaces the dispatch buffer.
+     *
+     * @param conflate
+     *            <code>true</code> to conflate objects, <code>false</code> to call the listeners on the socket thread
+     *            (default)
+     */
+    public void setConflatingDispatch(final boolean conflate) {
+        if (this.started) {
+            throw new IllegalStateException("Endpoint is already started");
+        }
+        this.dispatcher = conflate ? new ConflatingDispatcher(this) : null;
+    }
+
+    /**
+     * @return the number of objects waiting in the dispatch buffer
+     */
+    public int getDispatchBacklog() {
+        final Dispatcher dispatcher = this.dispatcher;
+        return (dispatcher == null) ? 0 : dispatcher.size();
+    }
 
+    /**
+     * @return the highest number of objects waiting in the dispatch buffer at once
+     */
+    public int getDispatchHighWaterMark() {
+        final Dispatcher dispatcher = this.dispatcher;
+        return (dispatcher == null) ? 0 : dispatcher.getHighWaterMark();
+    }
+
+    /**
+     * @return the number of objects dropped because the dispatch buffer was full or replaced by a newer object with
+     *         conflating dispatch
+     */
+    public long getDroppedObjects() {
+        final Dispatcher dispatcher = this.dispatcher;
+        return (dispatcher == null) ? 0 : dispatcher.getDropped();
     }
 
     /**
@@ -408,4 +1372,16 @@ public class GPSdEndpoint {
         return retryInterval.get();
     }
 
+    /*
+     * command was not sent because there is no connection
+     */
+    private static final class NotConnectedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        NotConnectedException() {
+            super("Not connected to GPSd");
+        }
+    }
+
 }
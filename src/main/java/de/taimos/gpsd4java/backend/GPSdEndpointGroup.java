@@ -0,0 +1,616 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.ParseException;
+
+/**
+ * Group of GPSd endpoints sharing a few selector threads<br>
+ * <br>
+ * Endpoints created by {@link #createEndpoint(String, int, AbstractResultParser)} do not open an own socket thread.
+ * Their connections are multiplexed as non-blocking channels over the selector threads of the group. Listeners,
+ * commands and reconnect handling work as for a standalone {@link GPSdEndpoint}.<br>
+ * <br>
+ * Listeners are called on the selector thread, so a slow listener delays all endpoints served by the same thread and
+ * listeners must not wait for command responses. Server names are resolved on a separate thread before every
+ * connection attempt, so a slow name server does not block the selector threads.
+ *
+ * @author thoeger
+ */
+public class GPSdEndpointGroup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GPSdEndpointGroup.class);
+
+    private final SelectorLoop[] loops;
+
+    private final Map<GPSdEndpoint, Connection> connections = new ConcurrentHashMap<GPSdEndpoint, Connection>();
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    // resolves the server names, idle threads end after a minute
+    private final Executor resolver = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "GPS Resolver Thread");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final boolean daemon;
+
+    private boolean started;
+
+    /**
+     * Create a group using one daemon selector thread
+     */
+    public GPSdEndpointGroup() {
+        this(1, true);
+    }
+
+    /**
+     * Create a group
+     *
+     * @param threads
+     *            the number of selector threads
+     * @param daemon
+     *            whether to start the selector threads as daemons, as defined in {@link Thread#setDaemon}
+     */
+    public GPSdEndpointGroup(final int threads, final boolean daemon) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Illegal number of threads: " + threads);
+        }
+        this.loops = new SelectorLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            this.loops[i] = new SelectorLoop();
+        }
+        this.daemon = daemon;
+    }
+
+    /**
+     * Create an endpoint served by this group
+     *
+     * @param server
+     *            the server name or IP
+     * @param port
+     *            the server port
+     * @param resultParser
+     *            the result parser
+     * @return the endpoint, call {@link GPSdEndpoint#start()} to connect it
+     */
+    public GPSdEndpoint createEndpoint(final String server, final int port, final AbstractResultParser resultParser) {
+        final GPSdEndpoint endpoint = new GPSdEndpoint(server, port, resultParser, this.daemon, this);
+        final SelectorLoop loop = this.loops[Math.abs(this.nextLoop.getAndIncrement() % this.loops.length)];
+        this.connections.put(endpoint, new Connection(endpoint, loop));
+        return endpoint;
+    }
+
+    /**
+     * Create an endpoint served by this group and use default parser
+     *
+     * @param server
+     *            the server name or IP
+     * @param port
+     *            the server port
+     * @return the endpoint, call {@link GPSdEndpoint#start()} to connect it
+     */
+    public GPSdEndpoint createEndpoint(final String server, final int port) {
+        return this.createEndpoint(server, port, new ResultParser());
+    }
+
+    /**
+     * start the selector threads
+     *
+     * @throws IOException
+     *             if a selector can not be opened
+     */
+    public synchronized void start() throws IOException {
+        if (this.started) {
+            return;
+        }
+        for (int i = 0; i < this.loops.length; i++) {
+            try {
+                this.loops[i].start("GPS Selector Thread " + i, this.daemon);
+            } catch (final IOException e) {
+                for (int j = 0; j < i; j++) {
+                    this.loops[j].stop();
+                }
+                throw e;
+            }
+        }
+        this.started = true;
+    }
+
+    /**
+     * Stops the group and closes the connections of all its endpoints. Waits for the selector threads to end unless
+     * called from one of them. The endpoints stay part of the group; after {@link #start()} they can be connected again
+     * with {@link GPSdEndpoint#start()}.
+     */
+    public synchronized void stop() {
+        for (final SelectorLoop loop : this.loops) {
+            loop.stop();
+        }
+        for (final Connection connection : this.connections.values()) {
+            // a name still being resolved must not connect after a restart
+            connection.stopped = true;
+            connection.resolving = false;
+        }
+        this.started = false;
+    }
+
+    // ########################################################
+
+    /*
+     * called by GPSdEndpoint.start()
+     */
+    void connect(final GPSdEndpoint endpoint) {
+        final Connection connection = this.connections.get(endpoint);
+        if (connection == null) {
+            throw new IllegalStateException("Endpoint is not part of this group");
+        }
+        connection.loop.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                connection.stopped = false;
+                connection.open();
+            }
+        });
+    }
+
+    /*
+     * called by GPSdEndpoint.stop()
+     */
+    void disconnect(final GPSdEndpoint endpoint) {
+        final Connection connection = this.connections.get(endpoint);
+        if (connection == null) {
+            return;
+        }
+        connection.loop.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                connection.stopped = true;
+                connection.close();
+            }
+        });
+    }
+
+    /*
+     * queue a command for the channel of the given endpoint, false if it is not connected
+     */
+    boolean send(final GPSdEndpoint endpoint, final String command) {
+        final Connection connection = this.connections.get(endpoint);
+        if ((connection == null) || (connection.channel == null)) {
+            return false;
+        }
+        connection.writes.add(ByteBuffer.wrap((command + "\n").getBytes(StandardCharsets.UTF_8)));
+        connection.loop.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                connection.updateInterest();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * state of one endpoint connection, only touched by the selector thread except for the write queue
+     */
+    private final class Connection {
+
+        private final GPSdEndpoint endpoint;
+
+        private final SelectorLoop loop;
+
+        private final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        private volatile SocketChannel channel;
+
+        private SelectionKey key;
+
+        private LineFramer framer;
+
+        private boolean stopped;
+
+        // set while the server name is resolved
+        private boolean resolving;
+
+        private long reconnectAt;
+
+        Connection(final GPSdEndpoint endpoint, final SelectorLoop loop) {
+            this.endpoint = endpoint;
+            this.loop = loop;
+        }
+
+        /*
+         * resolve the server name on the resolver thread and connect on the selector thread afterwards
+         */
+        void open() {
+            if (this.stopped || (this.channel != null) || this.resolving) {
+                return;
+            }
+            this.resolving = true;
+            final String server = this.endpoint.getServer();
+            final int port = this.endpoint.getPort();
+            try {
+                GPSdEndpointGroup.this.resolver.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        final InetSocketAddress address = new InetSocketAddress(server, port);
+                        Connection.this.loop.execute(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                Connection.this.resolving = false;
+                                Connection.this.open(address);
+                            }
+                        });
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                this.resolving = false;
+                GPSdEndpointGroup.LOG.warn("Could not resolve GPS server, retrying connection", e);
+                this.disconnected();
+            }
+        }
+
+        private void open(final InetSocketAddress address) {
+            if (this.stopped || (this.channel != null)) {
+                return;
+            }
+            if (address.isUnresolved()) {
+                GPSdEndpointGroup.LOG.debug("Could not resolve {}, retrying connection again", address.getHostString());
+                this.disconnected();
+                return;
+            }
+            try {
+                final SocketChannel socketChannel = SocketChannel.open();
+                this.channel = socketChannel;
+                socketChannel.configureBlocking(false);
+                this.framer = new LineFramer();
+                this.key = socketChannel.register(this.loop.selector, 0, this);
+                if (socketChannel.connect(address)) {
+                    this.connected();
+                } else {
+                    this.key.interestOps(SelectionKey.OP_CONNECT);
+                }
+            } catch (final IOException e) {
+                GPSdEndpointGroup.LOG.debug("Still disconnected from GPS socket, retrying connection again");
+                this.disconnected();
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (this.channel.finishConnect()) {
+                    this.connected();
+                }
+            } catch (final IOException e) {
+                GPSdEndpointGroup.LOG.debug("Still disconnected from GPS socket, retrying connection again");
+                this.disconnected();
+            }
+        }
+
+        private void connected() throws IOException {
+            GPSdEndpointGroup.LOG.debug("Connected to GPS socket");
+            this.endpoint.handleConnected();
+            this.updateInterest();
+        }
+
+        void read() {
+            if (this.endpoint.isRaw()) {
+                // the WATCH response ending raw mode and the lines following it are added to the framer
+                if (!this.readRaw() || this.endpoint.isRaw()) {
+                    return;
+                }
+            } else {
+                try {
+                    if (this.framer.fill(this.channel) < 0) {
+                        GPSdEndpointGroup.LOG.debug("Disconnected from GPS socket, retrying connection");
+                        this.disconnected();
+                        return;
+                    }
+                } catch (final IOException e) {
+                    GPSdEndpointGroup.LOG.warn("Problem encountered while reading line, attempting restart", e);
+                    this.disconnected();
+                    return;
+                }
+            }
+            while (!this.endpoint.isRaw() && this.framer.nextLine()) {
+                if (this.framer.lineLength() > 0) {
+                    try {
+                        // parse line and handle it accordingly
+                        this.endpoint.handleLine(this.framer.array(), this.framer.lineOffset(),
+                                this.framer.lineLength());
+                    } catch (final ParseException e) {
+                        this.endpoint.handleParseError(e);
+                    } catch (final RuntimeException e) {
+                        GPSdEndpointGroup.LOG.warn("Problem encountered while parsing/handling line", e);
+                    }
+                }
+            }
+            if (this.endpoint.isRaw()) {
+                // the rest of the buffer already follows the WATCH line starting raw mode
+                this.endpoint.handleRaw(this.framer);
+            }
+        }
+
+        /*
+         * read raw data into a pooled buffer, idle connections hold no buffer, false if disconnected
+         */
+        private boolean readRaw() {
+            final ByteBuffer buffer = DirectBufferPool.acquire();
+            try {
+                if (this.channel.read(buffer) < 0) {
+                    GPSdEndpointGroup.LOG.debug("Disconnected from GPS socket, retrying connection");
+                    this.disconnected();
+                    return false;
+                }
+                ((Buffer) buffer).flip();
+                this.endpoint.handleRaw(buffer, this.framer);
+                return true;
+            } catch (final IOException e) {
+                GPSdEndpointGroup.LOG.warn("Problem encountered while reading raw data, attempting restart", e);
+                this.disconnected();
+                return false;
+            } finally {
+                DirectBufferPool.release(buffer);
+            }
+        }
+
+        void write() {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = this.writes.peek()) != null) {
+                    this.channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        return;
+                    }
+                    this.writes.poll();
+                }
+                this.updateInterest();
+            } catch (final IOException e) {
+                GPSdEndpointGroup.LOG.warn("Problem encountered while writing command, attempting restart", e);
+                this.disconnected();
+            }
+        }
+
+        void updateInterest() {
+            if ((this.key == null) || !this.key.isValid() || !this.channel.isConnected()) {
+                return;
+            }
+            this.key.interestOps(this.writes.isEmpty() ? SelectionKey.OP_READ
+                    : (SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+        }
+
+        void close() {
+            if (this.key != null) {
+                this.key.cancel();
+                this.key = null;
+            }
+            if (this.channel != null) {
+                try {
+                    this.channel.close();
+                } catch (final IOException e) {
+                    GPSdEndpointGroup.LOG.debug("Close forced: " + e.getMessage());
+                }
+                this.channel = null;
+                this.endpoint.handleConnectionLost();
+            }
+            this.writes.clear();
+            this.framer = null;
+        }
+
+        private void disconnected() {
+            this.close();
+            if (!this.stopped) {
+                this.reconnectAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.endpoint.getRetryInterval());
+                this.loop.reconnects.add(this);
+            }
+        }
+    }
+
+    /**
+     * one selector thread, every start opens a new selector and thread
+     */
+    private static final class SelectorLoop {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        private final List<Connection> reconnects = new ArrayList<Connection>();
+
+        // selector of the current run, null while stopped
+        private volatile Selector selector;
+
+        private Thread thread;
+
+        /*
+         * open a new selector and start a thread serving it, called with the group locked
+         */
+        void start(final String name, final boolean daemon) throws IOException {
+            final Selector sel = Selector.open();
+            this.selector = sel;
+            this.thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    SelectorLoop.this.run(sel);
+                }
+            }, name);
+            this.thread.setDaemon(daemon);
+            this.thread.start();
+        }
+
+        /*
+         * end the current run and wait for its thread unless called by it, called with the group locked
+         */
+        void stop() {
+            final Selector sel = this.selector;
+            final Thread running = this.thread;
+            this.selector = null;
+            this.thread = null;
+            if (sel != null) {
+                sel.wakeup();
+            }
+            if ((running == null) || (running == Thread.currentThread())) {
+                return;
+            }
+            boolean interrupted = false;
+            while (running.isAlive()) {
+                try {
+                    running.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /*
+         * run the task on the selector thread
+         */
+        void execute(final Runnable task) {
+            this.tasks.add(task);
+            final Selector sel = this.selector;
+            if (sel != null) {
+                sel.wakeup();
+            }
+        }
+
+        /*
+         * serve the given selector until it is replaced or stopped
+         */
+        private void run(final Selector sel) {
+            try {
+                while (this.selector == sel) {
+                    Runnable task;
+                    while ((task = this.tasks.poll()) != null) {
+                        task.run();
+                    }
+                    this.reconnectDue();
+                    sel.select(this.reconnectTimeout());
+                    final Iterator<SelectionKey> keys = sel.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        final Connection connection = (Connection) key.attachment();
+                        if (key.isValid() && key.isConnectable()) {
+                            connection.finishConnect();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    }
+                }
+            } catch (final IOException | ClosedSelectorException e) {
+                GPSdEndpointGroup.LOG.warn("Selector failed", e);
+            } finally {
+                this.shutdown(sel);
+            }
+        }
+        private long reconnectTimeout() {
+            if (this.reconnects.isEmpty()) {
+                return 0;
+            }
+            long next = Long.MAX_VALUE;
+            for (final Connection connection : this.reconnects) {
+                next = Math.min(next, connection.reconnectAt);
+            }
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - System.nanoTime()));
+        }
+
+        private void reconnectDue() {
+            if (this.reconnects.isEmpty()) {
+                return;
+            }
+            final long now = System.nanoTime();
+            final List<Connection> due = new ArrayList<Connection>();
+            final Iterator<Connection> it = this.reconnects.iterator();
+            while (it.hasNext()) {
+                final Connection connection = it.next();
+                if ((connection.reconnectAt - now) <= 0) {
+                    it.remove();
+                    due.add(connection);
+                }
+            }
+            for (final Connection connection : due) {
+                connection.open();
+            }
+        }
+
+        /*
+         * close the connections of the run, the endpoints stay stopped until they are started again
+         */
+        private void shutdown(final Selector sel) {
+            for (final SelectionKey key : sel.keys()) {
+                final Connection connection = (Connection) key.attachment();
+                connection.stopped = true;
+                connection.close();
+            }
+            for (final Connection connection : this.reconnects) {
+                connection.stopped = true;
+            }
+            this.reconnects.clear();
+            this.tasks.clear();
+            try {
+                sel.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Connection to GPSd used by a {@link GPSdEndpoint}<br>
+ * <br>
+ * {@link #connect()} is called on every (re)connect from the socket thread, the streams are valid until
+ * {@link #close()} is called.
+ */
+public interface GPSdTransport extends Closeable {
+
+    /**
+     * Open a new connection, the previous one is already closed
+     *
+     * @throws IOException
+     *             if GPSd can not be reached
+     */
+    void connect() throws IOException;
+
+    /**
+     * @return the stream to read the lines sent by GPSd from
+     * @throws IOException
+     *             if not connected
+     */
+    InputStream getInputStream() throws IOException;
+
+    /**
+     * @return the stream to write commands to
+     * @throws IOException
+     *             if not connected
+     */
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Close the connection, does nothing if not connected
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * @param server
+     *            the server name or IP
+     * @param port
+     *            the server port
+     * @return a transport connecting to GPSd over TCP
+     */
+    static GPSdTransport tcp(final String server, final int port) {
+        return new TcpTransport(server, port);
+    }
+
+    /**
+     * Requires Java 16 or later, see {@link #isUnixSocketSupported()}. GPSd itself only serves clients over TCP, this
+     * transport is for GPSd instances or relays serving the client protocol on a unix domain socket.
+     *
+     * @param path
+     *            the path of the socket
+     * @return a transport connecting to GPSd over a unix domain socket
+     * @throws UnsupportedOperationException
+     *             if the runtime does not support unix domain sockets
+     */
+    static GPSdTransport unixSocket(final String path) {
+        return new UnixSocketTransport(path);
+    }
+
+    /**
+     * @return <code>true</code> if the runtime supports unix domain sockets
+     */
+    static boolean isUnixSocketSupported() {
+        return UnixSocketTransport.isSupported();
+    }
+}
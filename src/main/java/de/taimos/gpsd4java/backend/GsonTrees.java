@@ -0,0 +1,104 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import de.taimos.gpsd4java.types.EParseError;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+
+/**
+ * The Gson code of {@link AbstractResultParser}<br>
+ * <br>
+ * Kept apart because the JVM has to load the exception types a class catches when it verifies the class. The parsers
+ * can be loaded without Gson as long as this class is not used.
+ */
+final class GsonTrees {
+
+    private GsonTrees() {
+        // static only
+    }
+
+    /**
+     * @param line
+     *            the line read from GPSd
+     * @return the line as JSON tree
+     * @throws ParseException
+     *             if the line is not valid JSON
+     */
+    static JsonObject parse(final String line) throws ParseException {
+        if (!RawJson.isObjectFrame(line)) {
+            throw new ParseException("Parsing failed: not a complete object", EParseError.Malformed);
+        }
+        try {
+            return new JsonParser().parse(line).getAsJsonObject();
+        } catch (final JsonParseException | IllegalStateException e) {
+            throw new ParseException("Parsing failed", e, EParseError.Malformed);
+        }
+    }
+
+    /**
+     * @see AbstractResultParser#parseObjectArray(JsonArray, Class)
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends IGPSObject> List<T> parseObjectArray(final AbstractResultParser parser, final JsonArray array)
+            throws ParseException {
+        try {
+            final List<T> objects = new ArrayList<T>(10);
+            if (array == null) {
+                return objects;
+            }
+            for (int i = 0; i < array.size(); i++) {
+                objects.add((T) parser.parse(array.get(i).getAsJsonObject()));
+            }
+            return objects;
+        } catch (final JsonParseException | IllegalStateException e) {
+            throw new ParseException("Parsing failed", e, EParseError.Malformed);
+        }
+    }
+
+    /**
+     * @param type
+     *            the class of a parser
+     * @return <code>true</code> if the class or one of its superclasses below {@link AbstractResultParser} overrides
+     *         <code>optField</code>
+     */
+    static boolean overridesOptField(final Class<?> type) {
+        for (Class<?> c = type; c != AbstractResultParser.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("optField", Class.class, JsonObject.class, String.class, Object.class);
+                return true;
+            } catch (final NoSuchMethodException e) {
+                // not declared here, check the superclass
+            }
+        }
+        return false;
+    }
+}
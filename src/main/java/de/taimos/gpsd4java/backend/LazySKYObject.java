@@ -0,0 +1,398 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.stream.JsonReader;
+
+import de.taimos.gpsd4java.types.SATObject;
+import de.taimos.gpsd4java.types.SKYObject;
+
+/**
+ * {@link SKYObject} decoding its fields from the received line when they are first read<br>
+ * <br>
+ * Only the positions of the values are recorded when the line is received, the satellites are built when
+ * {@link #getSatellites()} is called for the first time.
+ */
+final class LazySKYObject extends SKYObject {
+
+    private static final int TAG = 0;
+
+    private static final int DEVICE = 1;
+
+    private static final int TIME = 2;
+
+    private static final int XDOP = 3;
+
+    private static final int YDOP = 4;
+
+    private static final int VDOP = 5;
+
+    private static final int TDOP = 6;
+
+    private static final int HDOP = 7;
+
+    private static final int PDOP = 8;
+
+    private static final int GDOP = 9;
+
+    private static final int SATELLITES = 10;
+
+    private static final byte[][] NAMES = names("tag", "device", "time", "xdop", "ydop", "vdop", "tdop", "hdop", "pdop",
+            "gdop", "satellites");
+
+    private static final int ALL = (1 << NAMES.length) - 1;
+
+    // members telling a plain satellite entry from other objects
+    private static final byte[][] SATELLITE_NAMES = names("class", "PRN");
+
+    private final byte[] line;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final StreamingResultParser parser;
+
+    // one bit per field that has been decoded or set
+    private volatile int decoded;
+
+    private LazySKYObject(final byte[] line, final int[] starts, final int[] ends, final StreamingResultParser parser) {
+        this.line = line;
+        this.starts = starts;
+        this.ends = ends;
+        this.parser = parser;
+    }
+
+    /**
+     * Scan a SKY line for its fields
+     *
+     * @param buffer
+     *            the buffer holding the line
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     * @param parser
+     *            the parser decoding the satellites
+     * @return the object or <code>null</code> if the line is malformed or its satellites are not all plain satellite
+     *         entries, so the eager parser decodes or rejects the line like without lazy decoding
+     */
+    static LazySKYObject scan(final byte[] buffer, final int offset, final int length, final StreamingResultParser parser) {
+        final byte[] line = Arrays.copyOfRange(buffer, offset, offset + length);
+        final int[] starts = new int[NAMES.length];
+        final int[] ends = new int[NAMES.length];
+        Arrays.fill(starts, -1);
+        if (!RawJson.scanMembers(line, 0, length, NAMES, starts, ends)) {
+            return null;
+        }
+        if ((starts[SATELLITES] >= 0) && !isSatelliteArray(line, starts[SATELLITES], ends[SATELLITES])) {
+            return null;
+        }
+        return new LazySKYObject(line, starts, ends, parser);
+    }
+
+    @Override
+    public String getTag() {
+        if ((this.decoded & (1 << TAG)) == 0) {
+            this.decode(TAG);
+        }
+        return super.getTag();
+    }
+
+    @Override
+    public synchronized void setTag(final String value) {
+        super.setTag(value);
+        this.decoded |= 1 << TAG;
+    }
+
+    @Override
+    public String getDevice() {
+        if ((this.decoded & (1 << DEVICE)) == 0) {
+            this.decode(DEVICE);
+        }
+        return super.getDevice();
+    }
+
+    @Override
+    public synchronized void setDevice(final String value) {
+        super.setDevice(value);
+        this.decoded |= 1 << DEVICE;
+    }
+
+    @Override
+    public double getTimestamp() {
+        if ((this.decoded & (1 << TIME)) == 0) {
+            this.decode(TIME);
+        }
+        return super.getTimestamp();
+    }
+
+    @Override
+    public synchronized void setTimestamp(final double value) {
+        super.setTimestamp(value);
+        this.decoded |= 1 << TIME;
+    }
+
+    @Override
+    public double getLongitudeDOP() {
+        if ((this.decoded & (1 << XDOP)) == 0) {
+            this.decode(XDOP);
+        }
+        return super.getLongitudeDOP();
+    }
+
+    @Override
+    public synchronized void setLongitudeDOP(final double value) {
+        super.setLongitudeDOP(value);
+        this.decoded |= 1 << XDOP;
+    }
+
+    @Override
+    public double getLatitudeDOP() {
+        if ((this.decoded & (1 << YDOP)) == 0) {
+            this.decode(YDOP);
+        }
+        return super.getLatitudeDOP();
+    }
+
+    @Override
+    public synchronized void setLatitudeDOP(final double value) {
+        super.setLatitudeDOP(value);
+        this.decoded |= 1 << YDOP;
+    }
+
+    @Override
+    public double getAltitudeDOP() {
+        if ((this.decoded & (1 << VDOP)) == 0) {
+            this.decode(VDOP);
+        }
+        return super.getAltitudeDOP();
+    }
+
+    @Override
+    public synchronized void setAltitudeDOP(final double value) {
+        super.setAltitudeDOP(value);
+        this.decoded |= 1 << VDOP;
+    }
+
+    @Override
+    public double getTimestampDOP() {
+        if ((this.decoded & (1 << TDOP)) == 0) {
+            this.decode(TDOP);
+        }
+        return super.getTimestampDOP();
+    }
+
+    @Override
+    public synchronized void setTimestampDOP(final double value) {
+        super.setTimestampDOP(value);
+        this.decoded |= 1 << TDOP;
+    }
+
+    @Override
+    public double getHorizontalDOP() {
+        if ((this.decoded & (1 << HDOP)) == 0) {
+            this.decode(HDOP);
+        }
+        return super.getHorizontalDOP();
+    }
+
+    @Override
+    public synchronized void setHorizontalDOP(final double value) {
+        super.setHorizontalDOP(value);
+        this.decoded |= 1 << HDOP;
+    }
+
+    @Override
+    public double getSphericalDOP() {
+        if ((this.decoded & (1 << PDOP)) == 0) {
+            this.decode(PDOP);
+        }
+        return super.getSphericalDOP();
+    }
+
+    @Override
+    public synchronized void setSphericalDOP(final double value) {
+        super.setSphericalDOP(value);
+        this.decoded |= 1 << PDOP;
+    }
+
+    @Override
+    public double getHypersphericalDOP() {
+        if ((this.decoded & (1 << GDOP)) == 0) {
+            this.decode(GDOP);
+        }
+        return super.getHypersphericalDOP();
+    }
+
+    @Override
+    public synchronized void setHypersphericalDOP(final double value) {
+        super.setHypersphericalDOP(value);
+        this.decoded |= 1 << GDOP;
+    }
+
+    @Override
+    public List<SATObject> getSatellites() {
+        if ((this.decoded & (1 << SATELLITES)) == 0) {
+            this.decode(SATELLITES);
+        }
+        return super.getSatellites();
+    }
+
+    @Override
+    public synchronized void setSatellites(final List<SATObject> value) {
+        super.setSatellites(value);
+        this.decoded |= 1 << SATELLITES;
+    }
+
+    private List<SATObject> parseSatellites(final int start, final int end) {
+        final String text = new String(this.line, start, end - start, StandardCharsets.UTF_8);
+        List<SATObject> satellites;
+        try {
+            final JsonReader reader = new JsonReader(new StringReader(text));
+            reader.setLenient(true);
+            satellites = this.parser.parseSatellites(reader);
+        } catch (final IOException | IllegalStateException | NumberFormatException e) {
+            satellites = null;
+        }
+        if (satellites == null) {
+            AbstractResultParser.LOG.debug("Invalid satellites: {}", text);
+            return new ArrayList<SATObject>(10);
+        }
+        return satellites;
+    }
+
+    private synchronized void decode(final int field) {
+        if ((this.decoded & (1 << field)) != 0) {
+            return;
+        }
+        final int start = this.starts[field];
+        final int end = this.ends[field];
+        final boolean present = start >= 0;
+        switch (field) {
+        case TAG:
+            super.setTag(present ? RawJson.toString(this.line, start, end, null) : null);
+            break;
+        case DEVICE:
+            super.setDevice(present ? RawJson.toString(this.line, start, end, null) : null);
+            break;
+        case TIME:
+            super.setTimestamp(present ? RawJson.toTimestamp(this.line, start, end) : Double.NaN);
+            break;
+        case XDOP:
+            super.setLongitudeDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case YDOP:
+            super.setLatitudeDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case VDOP:
+            super.setAltitudeDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case TDOP:
+            super.setTimestampDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case HDOP:
+            super.setHorizontalDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case PDOP:
+            super.setSphericalDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case GDOP:
+            super.setHypersphericalDOP(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case SATELLITES:
+            super.setSatellites(present ? this.parseSatellites(start, end) : new ArrayList<SATObject>(10));
+            break;
+        default:
+            break;
+        }
+        this.decoded |= 1 << field;
+    }
+
+    private void decodeAll() {
+        if (this.decoded == ALL) {
+            return;
+        }
+        for (int field = 0; field < NAMES.length; field++) {
+            if ((this.decoded & (1 << field)) == 0) {
+                this.decode(field);
+            }
+        }
+    }
+
+    @Override
+    public SKYObject copy() {
+        this.decodeAll();
+        return super.copy();
+    }
+
+    @Override
+    public int hashCode() {
+        this.decodeAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        this.decodeAll();
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        this.decodeAll();
+        return super.toString();
+    }
+
+    /*
+     * whether the value is an array of objects with a PRN and without a class, the entries the eager parsers decode as
+     * satellites
+     */
+    private static boolean isSatelliteArray(final byte[] line, final int start, final int end) {
+        final boolean[] satellites = { true };
+        final int[] starts = new int[SATELLITE_NAMES.length];
+        final int[] ends = new int[SATELLITE_NAMES.length];
+        final boolean array = RawJson.scanElements(line, start, end, (valueStart, valueEnd) -> {
+            Arrays.fill(starts, -1);
+            if (!RawJson.scanMembers(line, valueStart, valueEnd, SATELLITE_NAMES, starts, ends) || (starts[0] >= 0)
+                    || (starts[1] < 0)) {
+                satellites[0] = false;
+            }
+        });
+        return array && satellites[0];
+    }
+
+    private static byte[][] names(final String... names) {
+        final byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+}
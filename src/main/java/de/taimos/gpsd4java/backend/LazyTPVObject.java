@@ -0,0 +1,458 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import de.taimos.gpsd4java.types.ENMEAMode;
+import de.taimos.gpsd4java.types.TPVObject;
+
+/**
+ * {@link TPVObject} decoding its fields from the received line when they are first read<br>
+ * <br>
+ * Only the positions of the values are recorded when the line is received, each value is decoded once by its getter.
+ */
+final class LazyTPVObject extends TPVObject {
+
+    private static final int TAG = 0;
+
+    private static final int DEVICE = 1;
+
+    private static final int TIME = 2;
+
+    private static final int EPT = 3;
+
+    private static final int LAT = 4;
+
+    private static final int LON = 5;
+
+    private static final int ALT = 6;
+
+    private static final int EPX = 7;
+
+    private static final int EPY = 8;
+
+    private static final int EPV = 9;
+
+    private static final int TRACK = 10;
+
+    private static final int SPEED = 11;
+
+    private static final int CLIMB = 12;
+
+    private static final int EPD = 13;
+
+    private static final int EPS = 14;
+
+    private static final int EPC = 15;
+
+    private static final int MODE = 16;
+
+    private static final byte[][] NAMES = names("tag", "device", "time", "ept", "lat", "lon", "alt", "epx", "epy",
+            "epv", "track", "speed", "climb", "epd", "eps", "epc", "mode");
+
+    private static final int ALL = (1 << NAMES.length) - 1;
+
+    private final byte[] line;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    // one bit per field that has been decoded or set
+    private volatile int decoded;
+
+    private LazyTPVObject(final byte[] line, final int[] starts, final int[] ends) {
+        this.line = line;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Scan a TPV line for its fields
+     *
+     * @param buffer
+     *            the buffer holding the line
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     * @return the object or <code>null</code> if the line is malformed
+     */
+    static LazyTPVObject scan(final byte[] buffer, final int offset, final int length) {
+        final byte[] line = Arrays.copyOfRange(buffer, offset, offset + length);
+        final int[] starts = new int[NAMES.length];
+        final int[] ends = new int[NAMES.length];
+        Arrays.fill(starts, -1);
+        if (!RawJson.scanMembers(line, 0, length, NAMES, starts, ends)) {
+            return null;
+        }
+        return new LazyTPVObject(line, starts, ends);
+    }
+
+    @Override
+    public String getTag() {
+        if ((this.decoded & (1 << TAG)) == 0) {
+            this.decode(TAG);
+        }
+        return super.getTag();
+    }
+
+    @Override
+    public synchronized void setTag(final String value) {
+        super.setTag(value);
+        this.decoded |= 1 << TAG;
+    }
+
+    @Override
+    public String getDevice() {
+        if ((this.decoded & (1 << DEVICE)) == 0) {
+            this.decode(DEVICE);
+        }
+        return super.getDevice();
+    }
+
+    @Override
+    public synchronized void setDevice(final String value) {
+        super.setDevice(value);
+        this.decoded |= 1 << DEVICE;
+    }
+
+    @Override
+    public double getTimestamp() {
+        if ((this.decoded & (1 << TIME)) == 0) {
+            this.decode(TIME);
+        }
+        return super.getTimestamp();
+    }
+
+    @Override
+    public synchronized void setTimestamp(final double value) {
+        super.setTimestamp(value);
+        this.decoded |= 1 << TIME;
+    }
+
+    @Override
+    public double getTimestampError() {
+        if ((this.decoded & (1 << EPT)) == 0) {
+            this.decode(EPT);
+        }
+        return super.getTimestampError();
+    }
+
+    @Override
+    public synchronized void setTimestampError(final double value) {
+        super.setTimestampError(value);
+        this.decoded |= 1 << EPT;
+    }
+
+    @Override
+    public double getLatitude() {
+        if ((this.decoded & (1 << LAT)) == 0) {
+            this.decode(LAT);
+        }
+        return super.getLatitude();
+    }
+
+    @Override
+    public synchronized void setLatitude(final double value) {
+        super.setLatitude(value);
+        this.decoded |= 1 << LAT;
+    }
+
+    @Override
+    public double getLongitude() {
+        if ((this.decoded & (1 << LON)) == 0) {
+            this.decode(LON);
+        }
+        return super.getLongitude();
+    }
+
+    @Override
+    public synchronized void setLongitude(final double value) {
+        super.setLongitude(value);
+        this.decoded |= 1 << LON;
+    }
+
+    @Override
+    public double getAltitude() {
+        if ((this.decoded & (1 << ALT)) == 0) {
+            this.decode(ALT);
+        }
+        return super.getAltitude();
+    }
+
+    @Override
+    public synchronized void setAltitude(final double value) {
+        super.setAltitude(value);
+        this.decoded |= 1 << ALT;
+    }
+
+    @Override
+    public double getLongitudeError() {
+        if ((this.decoded & (1 << EPX)) == 0) {
+            this.decode(EPX);
+        }
+        return super.getLongitudeError();
+    }
+
+    @Override
+    public synchronized void setLongitudeError(final double value) {
+        super.setLongitudeError(value);
+        this.decoded |= 1 << EPX;
+    }
+
+    @Override
+    public double getLatitudeError() {
+        if ((this.decoded & (1 << EPY)) == 0) {
+            this.decode(EPY);
+        }
+        return super.getLatitudeError();
+    }
+
+    @Override
+    public synchronized void setLatitudeError(final double value) {
+        super.setLatitudeError(value);
+        this.decoded |= 1 << EPY;
+    }
+
+    @Override
+    public double getAltitudeError() {
+        if ((this.decoded & (1 << EPV)) == 0) {
+            this.decode(EPV);
+        }
+        return super.getAltitudeError();
+    }
+
+    @Override
+    public synchronized void setAltitudeError(final double value) {
+        super.setAltitudeError(value);
+        this.decoded |= 1 << EPV;
+    }
+
+    @Override
+    public double getCourse() {
+        if ((this.decoded & (1 << TRACK)) == 0) {
+            this.decode(TRACK);
+        }
+        return super.getCourse();
+    }
+
+    @Override
+    public synchronized void setCourse(final double value) {
+        super.setCourse(value);
+        this.decoded |= 1 << TRACK;
+    }
+
+    @Override
+    public double getSpeed() {
+        if ((this.decoded & (1 << SPEED)) == 0) {
+            this.decode(SPEED);
+        }
+        return super.getSpeed();
+    }
+
+    @Override
+    public synchronized void setSpeed(final double value) {
+        super.setSpeed(value);
+        this.decoded |= 1 << SPEED;
+    }
+
+    @Override
+    public double getClimbRate() {
+        if ((this.decoded & (1 << CLIMB)) == 0) {
+            this.decode(CLIMB);
+        }
+        return super.getClimbRate();
+    }
+
+    @Override
+    public synchronized void setClimbRate(final double value) {
+        super.setClimbRate(value);
+        this.decoded |= 1 << CLIMB;
+    }
+
+    @Override
+    public double getCourseError() {
+        if ((this.decoded & (1 << EPD)) == 0) {
+            this.decode(EPD);
+        }
+        return super.getCourseError();
+    }
+
+    @Override
+    public synchronized void setCourseError(final double value) {
+        super.setCourseError(value);
+        this.decoded |= 1 << EPD;
+    }
+
+    @Override
+    public double getSpeedError() {
+        if ((this.decoded & (1 << EPS)) == 0) {
+            this.decode(EPS);
+        }
+        return super.getSpeedError();
+    }
+
+    @Override
+    public synchronized void setSpeedError(final double value) {
+        super.setSpeedError(value);
+        this.decoded |= 1 << EPS;
+    }
+
+    @Override
+    public double getClimbRateError() {
+        if ((this.decoded & (1 << EPC)) == 0) {
+            this.decode(EPC);
+        }
+        return super.getClimbRateError();
+    }
+
+    @Override
+    public synchronized void setClimbRateError(final double value) {
+        super.setClimbRateError(value);
+        this.decoded |= 1 << EPC;
+    }
+
+    @Override
+    public ENMEAMode getMode() {
+        if ((this.decoded & (1 << MODE)) == 0) {
+            this.decode(MODE);
+        }
+        return super.getMode();
+    }
+
+    @Override
+    public synchronized void setMode(final ENMEAMode value) {
+        super.setMode(value);
+        this.decoded |= 1 << MODE;
+    }
+
+    private synchronized void decode(final int field) {
+        if ((this.decoded & (1 << field)) != 0) {
+            return;
+        }
+        final int start = this.starts[field];
+        final int end = this.ends[field];
+        final boolean present = start >= 0;
+        switch (field) {
+        case TAG:
+            super.setTag(present ? RawJson.toString(this.line, start, end, null) : null);
+            break;
+        case DEVICE:
+            super.setDevice(present ? RawJson.toString(this.line, start, end, null) : null);
+            break;
+        case TIME:
+            super.setTimestamp(present ? RawJson.toTimestamp(this.line, start, end) : Double.NaN);
+            break;
+        case EPT:
+            super.setTimestampError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case LAT:
+            super.setLatitude(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case LON:
+            super.setLongitude(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case ALT:
+            super.setAltitude(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPX:
+            super.setLongitudeError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPY:
+            super.setLatitudeError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPV:
+            super.setAltitudeError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case TRACK:
+            super.setCourse(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case SPEED:
+            super.setSpeed(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case CLIMB:
+            super.setClimbRate(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPD:
+            super.setCourseError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPS:
+            super.setSpeedError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case EPC:
+            super.setClimbRateError(present ? RawJson.toDouble(this.line, start, end, Double.NaN) : Double.NaN);
+            break;
+        case MODE:
+            super.setMode(ENMEAMode.fromInt(present ? RawJson.toInt(this.line, start, end, 0) : 0));
+            break;
+        default:
+            break;
+        }
+        this.decoded |= 1 << field;
+    }
+
+    private void decodeAll() {
+        if (this.decoded == ALL) {
+            return;
+        }
+        for (int field = 0; field < NAMES.length; field++) {
+            if ((this.decoded & (1 << field)) == 0) {
+                this.decode(field);
+            }
+        }
+    }
+
+    @Override
+    public TPVObject copy() {
+        this.decodeAll();
+        return super.copy();
+    }
+
+    @Override
+    public int hashCode() {
+        this.decodeAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        this.decodeAll();
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        this.decodeAll();
+        return super.toString();
+    }
+
+    private static byte[][] names(final String... names) {
+        final byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+}
@@ -39,6 +39,14 @@ import de.taimos.gpsd4java.types.TPVObject;
 @Deprecated
 public class LegacyResultParser extends ResultParser {
 
+    /**
+     * The POLL messages are always decoded in the format of gpsd 3.5 and older
+     */
+    @Override
+    public AbstractResultParser forProtocol(final int major, final int minor) {
+        return this;
+    }
+
     @Override
     protected IGPSObject parsePOLL(final JsonObject json) throws ParseException {
         IGPSObject gps;
@@ -0,0 +1,209 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits the bytes received from GPSd into lines without decoding them<br>
+ * <br>
+ * The bytes are read into one reusable buffer. A line is only valid until the next call of {@link #nextLine()} or
+ * one of the <code>fill</code> methods.
+ */
+final class LineFramer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LineFramer.class);
+
+    static final int INITIAL_CAPACITY = 8 * 1024;
+
+    static final int MAX_CAPACITY = 1024 * 1024;
+
+    // always changed through the Buffer methods, the covariant ByteBuffer overrides of Java 9+ fail on Java 8
+    private ByteBuffer buffer;
+
+    // start of the data not yet returned as a line
+    private int start;
+
+    // everything before this index has already been searched for a line end
+    private int scan;
+
+    // set while skipping the rest of a line longer than MAX_CAPACITY
+    private boolean discarding;
+
+    private int lineOffset;
+
+    private int lineLength;
+
+    LineFramer() {
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the array holding the current line
+     */
+    byte[] array() {
+        return this.buffer.array();
+    }
+
+    /**
+     * @return offset of the current line in {@link #array()}
+     */
+    int lineOffset() {
+        return this.lineOffset;
+    }
+
+    /**
+     * @return length of the current line without the line terminator
+     */
+    int lineLength() {
+        return this.lineLength;
+    }
+
+    /**
+     * find the next complete line in the buffered data
+     *
+     * @return <code>true</code> if a line is available, <code>false</code> if more data has to be read
+     */
+    boolean nextLine() {
+        final byte[] array = this.buffer.array();
+        final int end = this.buffer.position();
+        for (int i = this.scan; i < end; i++) {
+            if (array[i] == '\n') {
+                final boolean skip = this.discarding;
+                int length = i - this.start;
+                if ((length > 0) && (array[i - 1] == '\r')) {
+                    length--;
+                }
+                this.lineOffset = this.start;
+                this.lineLength = length;
+                this.start = i + 1;
+                this.scan = this.start;
+                this.discarding = false;
+                if (!skip) {
+                    return true;
+                }
+            }
+        }
+        this.scan = end;
+        return false;
+    }
+
+    /**
+     * read more data from the given stream
+     *
+     * @param in
+     *            the stream to read from
+     * @return the number of bytes read or -1 at the end of the stream
+     * @throws IOException
+     *             if reading fails
+     */
+    int fill(final InputStream in) throws IOException {
+        this.prepareFill();
+        final int position = this.buffer.position();
+        final int read = in.read(this.buffer.array(), position, this.buffer.capacity() - position);
+        if (read > 0) {
+            ((Buffer) this.buffer).position(position + read);
+        }
+        return read;
+    }
+
+    /**
+     * read more data from the given channel
+     *
+     * @param channel
+     *            the channel to read from
+     * @return the number of bytes read or -1 at the end of the stream
+     * @throws IOException
+     *             if reading fails
+     */
+    int fill(final ReadableByteChannel channel) throws IOException {
+        this.prepareFill();
+        return channel.read(this.buffer);
+    }
+
+    /**
+     * add data read by someone else, e.g. when GPSd switches back from raw data
+     *
+     * @param source
+     *            the data to add, consumed by this call
+     */
+    void fill(final ByteBuffer source) {
+        while (source.hasRemaining()) {
+            this.prepareFill();
+            final int position = this.buffer.position();
+            final int length = Math.min(source.remaining(), this.buffer.capacity() - position);
+            source.get(this.buffer.array(), position, length);
+            ((Buffer) this.buffer).position(position + length);
+        }
+    }
+
+    /**
+     * remove the data not yet returned as a line, e.g. when GPSd switches to raw data
+     *
+     * @return a copy of the data, empty if no data was left
+     */
+    ByteBuffer drain() {
+        final ByteBuffer rest = ByteBuffer.wrap(Arrays.copyOfRange(this.buffer.array(), this.start,
+                this.buffer.position()));
+        ((Buffer) this.buffer).clear();
+        this.start = 0;
+        this.scan = 0;
+        this.discarding = false;
+        return rest;
+    }
+
+    /*
+     * drop the lines already returned and make room for more data
+     */
+    private void prepareFill() {
+        final int end = this.buffer.position();
+        if (this.start > 0) {
+            final byte[] array = this.buffer.array();
+            System.arraycopy(array, this.start, array, 0, end - this.start);
+            ((Buffer) this.buffer).position(end - this.start);
+            this.scan -= this.start;
+            this.start = 0;
+        }
+        if (this.buffer.hasRemaining()) {
+            return;
+        }
+        if (this.buffer.capacity() < MAX_CAPACITY) {
+            final ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+            ((Buffer) this.buffer).flip();
+            larger.put(this.buffer);
+            this.buffer = larger;
+        } else {
+            LOG.warn("Discarding line longer than {} bytes", MAX_CAPACITY);
+            ((Buffer) this.buffer).clear();
+            this.scan = 0;
+            this.discarding = true;
+        }
+    }
+}
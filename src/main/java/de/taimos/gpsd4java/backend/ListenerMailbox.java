@@ -0,0 +1,112 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+
+/**
+ * Queue of objects for one listener, drained in order by tasks of the listener's executor<br>
+ * <br>
+ * At most one task runs at a time, so the listener is never called concurrently even on a thread pool.
+ */
+final class ListenerMailbox implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListenerMailbox.class);
+
+    // the handle methods of the listener by object type, see ListenerRegistry
+    private final Map<Class<?>, Consumer<Object>> handlers;
+
+    private final Executor executor;
+
+    private final Queue<IGPSObject> queue = new ConcurrentLinkedQueue<IGPSObject>();
+
+    // objects queued but not yet handled, a drain task is scheduled while this is not 0
+    private final AtomicInteger depth = new AtomicInteger();
+
+    ListenerMailbox(final Map<Class<?>, Consumer<Object>> handlers, final Executor executor) {
+        if (handlers == null) {
+            throw new IllegalArgumentException("handlers can not be null!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor can not be null!");
+        }
+        this.handlers = handlers;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the number of objects waiting for the listener
+     */
+    int getDepth() {
+        return this.depth.get();
+    }
+
+    /**
+     * queue an object and schedule a drain task unless one is already pending
+     *
+     * @param object
+     *            the object to pass to the listener
+     */
+    void post(final IGPSObject object) {
+        this.queue.add(object);
+        if (this.depth.getAndIncrement() == 0) {
+            try {
+                this.executor.execute(this);
+            } catch (final RejectedExecutionException e) {
+                ListenerMailbox.LOG.warn("Listener executor rejected task, discarding {} objects", this.depth.get());
+                this.queue.clear();
+                this.depth.set(0);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        do {
+            final IGPSObject object = this.queue.poll();
+            try {
+                this.deliver(object);
+            } catch (final RuntimeException e) {
+                ListenerMailbox.LOG.warn("Problem encountered while handling object", e);
+            }
+        } while (this.depth.decrementAndGet() != 0);
+    }
+
+    private void deliver(final IGPSObject object) {
+        final Consumer<Object> handler = this.handlers.get(GPSdEndpoint.typeOf(object));
+        if (handler != null) {
+            handler.accept(object);
+        }
+    }
+}
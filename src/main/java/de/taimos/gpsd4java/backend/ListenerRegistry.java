@@ -0,0 +1,327 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import de.taimos.gpsd4java.api.IObjectListener;
+import de.taimos.gpsd4java.api.ObjectListener;
+import de.taimos.gpsd4java.types.ATTObject;
+import de.taimos.gpsd4java.types.DeviceObject;
+import de.taimos.gpsd4java.types.DevicesObject;
+import de.taimos.gpsd4java.types.IGPSField;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+import de.taimos.gpsd4java.types.subframes.SUBFRAMEObject;
+
+/**
+ * Copy-on-write registry of the consumers of an endpoint<br>
+ * <br>
+ * Changes replace the arrays instead of modifying them, so objects can be dispatched while consumers are added or
+ * removed without locking. The consumers of a class are resolved once and cached until the next change.
+ */
+final class ListenerRegistry {
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    // the handle methods of IObjectListener by the type of object they take
+    private static final Handler[] HANDLERS = {
+            new Handler(TPVObject.class, "handleTPV", (listener, object) -> listener.handleTPV((TPVObject) object)),
+            new Handler(SKYObject.class, "handleSKY", (listener, object) -> listener.handleSKY((SKYObject) object)),
+            new Handler(ATTObject.class, "handleATT", (listener, object) -> listener.handleATT((ATTObject) object)),
+            new Handler(SUBFRAMEObject.class, "handleSUBFRAME",
+                    (listener, object) -> listener.handleSUBFRAME((SUBFRAMEObject) object)),
+            new Handler(DevicesObject.class, "handleDevices",
+                    (listener, object) -> listener.handleDevices((DevicesObject) object)),
+            new Handler(DeviceObject.class, "handleDevice",
+                    (listener, object) -> listener.handleDevice((DeviceObject) object)) };
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final Consumer<Object>[] NO_CONSUMERS = new Consumer[0];
+
+    // all subscriptions in the order they were made, guarded by this
+    private Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    // listeners added with an executor, guarded by this
+    private final Map<IObjectListener, ListenerMailbox> mailboxes = new HashMap<IObjectListener, ListenerMailbox>();
+
+    // whether objects have to be copied before queueing them, set if the parser reuses objects
+    private volatile boolean copyQueued;
+
+    // consumers by object class, replaced on every change
+    private volatile Map<Class<?>, Consumer<Object>[]> resolved = new ConcurrentHashMap<Class<?>, Consumer<Object>[]>();
+
+    /**
+     * @param clazz
+     *            the class of the object to dispatch
+     * @return the consumers of objects of the given class, never modified
+     */
+    Consumer<Object>[] get(final Class<?> clazz) {
+        final Consumer<Object>[] consumers = this.resolved.get(clazz);
+        if (consumers != null) {
+            return consumers;
+        }
+        return this.resolve(clazz);
+    }
+
+    /**
+     * @param clazz
+     *            the class of the object to dispatch
+     * @return <code>true</code> if there is a consumer for objects of the given class
+     */
+    boolean hasSubscribers(final Class<?> clazz) {
+        return this.get(clazz).length > 0;
+    }
+
+    <T> void subscribe(final Class<T> type, final Set<? extends IGPSField> fields, final Consumer<? super T> consumer) {
+        if (type == null) {
+            throw new IllegalArgumentException("type can not be null!");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer can not be null!");
+        }
+        Set<IGPSField> projection = null;
+        if (fields != null) {
+            for (final IGPSField field : fields) {
+                if (field.getType() != type) {
+                    throw new IllegalArgumentException("Field " + field + " does not belong to " + type.getName());
+                }
+            }
+            projection = new HashSet<IGPSField>(fields);
+        }
+        this.add(new Subscription(type, consumer, null, projection));
+    }
+
+    /**
+     * subscribe to at most one object per device and interval
+     *
+     * @param interval
+     *            the length of the intervals in nanoseconds
+     */
+    <T> void subscribe(final Class<T> type, final EDecimation decimation, final long interval,
+            final Consumer<? super T> consumer) {
+        if (type == null) {
+            throw new IllegalArgumentException("type can not be null!");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer can not be null!");
+        }
+        this.add(new Subscription(type, new Decimator(consumer, type, decimation, interval, () -> this.copyQueued),
+                null, null));
+    }
+
+    /**
+     * @param clazz
+     *            the class of the object to dispatch
+     * @return the union of the fields the subscriptions of objects of the given class need, <code>null</code> if one
+     *         of them needs all fields or there is no subscription
+     */
+    synchronized Set<IGPSField> getProjection(final Class<?> clazz) {
+        Set<IGPSField> union = null;
+        for (final Subscription subscription : this.subscriptions) {
+            if (subscription.type.isAssignableFrom(clazz)) {
+                if (subscription.fields == null) {
+                    return null;
+                }
+                if (union == null) {
+                    union = new HashSet<IGPSField>();
+                }
+                union.addAll(subscription.fields);
+            }
+        }
+        return union;
+    }
+
+    synchronized void unsubscribe(final Class<?> type, final Consumer<?> consumer) {
+        for (int i = 0; i < this.subscriptions.length; i++) {
+            final Subscription subscription = this.subscriptions[i];
+            if ((subscription.owner == null) && (subscription.type == type) && subscription.isFor(consumer)) {
+                final List<Subscription> remaining = new ArrayList<Subscription>(Arrays.asList(this.subscriptions));
+                remaining.remove(i);
+                this.replace(remaining);
+                return;
+            }
+        }
+    }
+
+    /**
+     * subscribe the handle methods of the listener, methods not overridden from {@link ObjectListener} are skipped
+     */
+    synchronized void addListener(final IObjectListener listener) {
+        this.removeListener(listener);
+        for (final Map.Entry<Class<?>, Consumer<Object>> handler : ListenerRegistry.handlers(listener).entrySet()) {
+            this.add(new Subscription(handler.getKey(), handler.getValue(), listener, null));
+        }
+    }
+
+    /**
+     * subscribe the handle methods of the listener through a mailbox drained by the executor
+     */
+    synchronized void addListener(final IObjectListener listener, final Executor executor) {
+        this.removeListener(listener);
+        final Map<Class<?>, Consumer<Object>> handlers = ListenerRegistry.handlers(listener);
+        final ListenerMailbox mailbox = new ListenerMailbox(handlers, executor);
+        this.mailboxes.put(listener, mailbox);
+        final Consumer<Object> post = object -> mailbox
+                .post(this.copyQueued ? GPSdEndpoint.copyOf((IGPSObject) object) : (IGPSObject) object);
+        for (final Class<?> type : handlers.keySet()) {
+            this.add(new Subscription(type, post, listener, null));
+        }
+    }
+
+    synchronized void removeListener(final IObjectListener listener) {
+        this.mailboxes.remove(listener);
+        final List<Subscription> remaining = new ArrayList<Subscription>(this.subscriptions.length);
+        for (final Subscription subscription : this.subscriptions) {
+            if (subscription.owner != listener) {
+                remaining.add(subscription);
+            }
+        }
+        if (remaining.size() != this.subscriptions.length) {
+            this.replace(remaining);
+        }
+    }
+
+    void setCopyQueued(final boolean copyQueued) {
+        this.copyQueued = copyQueued;
+    }
+
+    synchronized int getMailboxDepth(final IObjectListener listener) {
+        final ListenerMailbox mailbox = this.mailboxes.get(listener);
+        return (mailbox == null) ? 0 : mailbox.getDepth();
+    }
+
+    synchronized void clear() {
+        this.mailboxes.clear();
+        this.replace(new ArrayList<Subscription>(0));
+    }
+
+    private synchronized void add(final Subscription subscription) {
+        final List<Subscription> all = new ArrayList<Subscription>(Arrays.asList(this.subscriptions));
+        all.add(subscription);
+        this.replace(all);
+    }
+
+    private void replace(final List<Subscription> all) {
+        this.subscriptions = all.toArray(new Subscription[all.size()]);
+        this.resolved = new ConcurrentHashMap<Class<?>, Consumer<Object>[]>();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private synchronized Consumer<Object>[] resolve(final Class<?> clazz) {
+        final List<Consumer<Object>> consumers = new ArrayList<Consumer<Object>>();
+        for (final Subscription subscription : this.subscriptions) {
+            if (subscription.type.isAssignableFrom(clazz)) {
+                consumers.add(subscription.consumer);
+            }
+        }
+        final Consumer<Object>[] array = consumers.isEmpty() ? NO_CONSUMERS
+                : consumers.toArray(new Consumer[consumers.size()]);
+        this.resolved.put(clazz, array);
+        return array;
+    }
+
+    /*
+     * the handle methods of the listener by object type, skipping the empty methods inherited from ObjectListener
+     */
+    private static Map<Class<?>, Consumer<Object>> handlers(final IObjectListener listener) {
+        final Map<Class<?>, Consumer<Object>> handlers = new LinkedHashMap<Class<?>, Consumer<Object>>();
+        for (final Handler handler : HANDLERS) {
+            if (ListenerRegistry.isHandled(listener, handler)) {
+                handlers.put(handler.type, object -> handler.method.accept(listener, object));
+            }
+        }
+        return handlers;
+    }
+
+    private static boolean isHandled(final IObjectListener listener, final Handler handler) {
+        if (listener instanceof ObjectListener) {
+            try {
+                return listener.getClass().getMethod(handler.name, handler.type)
+                        .getDeclaringClass() != ObjectListener.class;
+            } catch (final NoSuchMethodException e) {
+                // can not happen, the method is part of the interface
+            }
+        }
+        return true;
+    }
+
+    private static final class Handler {
+
+        final Class<?> type;
+
+        final String name;
+
+        final BiConsumer<IObjectListener, Object> method;
+
+        Handler(final Class<?> type, final String name, final BiConsumer<IObjectListener, Object> method) {
+            this.type = type;
+            this.name = name;
+            this.method = method;
+        }
+    }
+
+    private static final class Subscription {
+
+        final Class<?> type;
+
+        final Consumer<Object> consumer;
+
+        // the listener this subscription was created for, null for direct subscriptions
+        final IObjectListener owner;
+
+        // the fields the consumer needs, null for all fields
+        final Set<IGPSField> fields;
+
+        @SuppressWarnings("unchecked")
+        Subscription(final Class<?> type, final Consumer<?> consumer, final IObjectListener owner,
+                final Set<IGPSField> fields) {
+            this.type = type;
+            this.consumer = (Consumer<Object>) consumer;
+            this.owner = owner;
+            this.fields = fields;
+        }
+
+        /*
+         * whether this subscription calls the given consumer, directly or rate-limited
+         */
+        boolean isFor(final Consumer<?> target) {
+            if (this.consumer instanceof Decimator) {
+                return ((Decimator) this.consumer).getTarget().equals(target);
+            }
+            return this.consumer.equals(target);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.nio.charset.StandardCharsets;
+
+import de.taimos.gpsd4java.types.ATTObject;
+import de.taimos.gpsd4java.types.DeviceObject;
+import de.taimos.gpsd4java.types.DevicesObject;
+import de.taimos.gpsd4java.types.GSTObject;
+import de.taimos.gpsd4java.types.PollObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+import de.taimos.gpsd4java.types.VersionObject;
+import de.taimos.gpsd4java.types.WatchObject;
+import de.taimos.gpsd4java.types.subframes.SUBFRAMEObject;
+
+/**
+ * Finds the message class of a raw line without parsing it<br>
+ * <br>
+ * GPSd writes the class as the first member of every object, so only lines starting with
+ * <code>{"class":"</code> are recognized. Other lines have to be parsed to find out what they are.
+ */
+final class MessageClassScanner {
+
+    private static final byte[] PREFIX = "{\"class\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    // longest name of another message class, GPSd uses a few upper case letters
+    private static final int MAX_OTHER_LENGTH = 16;
+
+    private static final String[] NAMES = { TPVObject.NAME, SKYObject.NAME, GSTObject.NAME, ATTObject.NAME,
+            SUBFRAMEObject.NAME, DeviceObject.NAME, DevicesObject.NAME, VersionObject.NAME, WatchObject.NAME,
+            PollObject.NAME };
+
+    private static final Class<?>[] TYPES = { TPVObject.class, SKYObject.class, GSTObject.class, ATTObject.class,
+            SUBFRAMEObject.class, DeviceObject.class, DevicesObject.class, VersionObject.class, WatchObject.class,
+            PollObject.class };
+
+    private static final byte[][] NAME_BYTES = new byte[NAMES.length][];
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAME_BYTES[i] = NAMES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private MessageClassScanner() {
+        // static only
+    }
+
+    /**
+     * @return the number of recognized message classes
+     */
+    static int size() {
+        return NAMES.length;
+    }
+
+    static String name(final int index) {
+        return NAMES[index];
+    }
+
+    static Class<?> type(final int index) {
+        return TYPES[index];
+    }
+
+    /**
+     * @param buffer
+     *            the buffer holding the line
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     * @return the index of the message class or -1 if the class is not recognized
+     */
+    static int scan(final byte[] buffer, final int offset, final int length) {
+        if (length <= PREFIX.length) {
+            return -1;
+        }
+        for (int i = 0; i < PREFIX.length; i++) {
+            if (buffer[offset + i] != PREFIX[i]) {
+                return -1;
+            }
+        }
+        final int start = offset + PREFIX.length;
+        final int end = offset + length;
+        for (int n = 0; n < NAME_BYTES.length; n++) {
+            final byte[] name = NAME_BYTES[n];
+            final int quote = start + name.length;
+            if ((quote < end) && (buffer[quote] == '"') && MessageClassScanner.matches(buffer, start, name)) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param name
+     *            the GPSd class name
+     * @return the index of the message class or -1 if the library does not know the class
+     */
+    static int indexOf(final String name) {
+        for (int n = 0; n < NAMES.length; n++) {
+            if (NAMES[n].equals(name)) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the class of a line {@link #scan(byte[], int, int)} did not recognize, e.g. <code>TOFF</code> or
+     * <code>PPS</code>
+     *
+     * @param buffer
+     *            the buffer holding the line
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     * @return the class name or <code>null</code> if the line does not start with a plain class name
+     */
+    static String scanOther(final byte[] buffer, final int offset, final int length) {
+        if ((length <= PREFIX.length) || !MessageClassScanner.matches(buffer, offset, PREFIX)) {
+            return null;
+        }
+        final int start = offset + PREFIX.length;
+        final int end = Math.min(offset + length, start + MAX_OTHER_LENGTH + 1);
+        for (int i = start; i < end; i++) {
+            final byte b = buffer[i];
+            if (b == '"') {
+                return (i > start) ? new String(buffer, start, i - start, StandardCharsets.US_ASCII) : null;
+            }
+            if (!(((b >= 'A') && (b <= 'Z')) || ((b >= 'a') && (b <= 'z')) || ((b >= '0') && (b <= '9')))) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(final byte[] buffer, final int start, final byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (buffer[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
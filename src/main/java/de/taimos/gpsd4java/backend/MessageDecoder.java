@@ -0,0 +1,49 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.gson.JsonObject;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+
+/**
+ * Decodes the JSON object of one GPSd message class<br>
+ * <br>
+ * Decoders are registered by class name with {@link ResultParser#registerDecoder(String, MessageDecoder)} or provided
+ * by a {@link MessageDecoderProvider}. They must be thread-safe.
+ */
+public interface MessageDecoder {
+
+    /**
+     * @param parser
+     *            the parser calling the decoder, e.g. to parse nested objects with
+     *            {@link ResultParser#parse(JsonObject)}
+     * @param json
+     *            the object to decode
+     * @return the decoded object
+     * @throws ParseException
+     *             if decoding fails
+     */
+    IGPSObject decode(ResultParser parser, JsonObject json) throws ParseException;
+}
@@ -0,0 +1,40 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Map;
+
+/**
+ * Service provider for decoders of message classes the library does not know, e.g. <code>TOFF</code> or
+ * <code>PPS</code><br>
+ * <br>
+ * Implementations are found with {@link java.util.ServiceLoader} when {@link ResultParser} is loaded. List them in
+ * <code>META-INF/services/de.taimos.gpsd4java.backend.MessageDecoderProvider</code>.
+ */
+public interface MessageDecoderProvider {
+
+    /**
+     * @return the decoders by GPSd class name
+     */
+    Map<String, MessageDecoder> getDecoders();
+}
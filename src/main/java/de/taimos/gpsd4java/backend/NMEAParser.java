@@ -0,0 +1,660 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import de.taimos.gpsd4java.types.ENMEAMode;
+import de.taimos.gpsd4java.types.EParseError;
+import de.taimos.gpsd4java.types.GSTObject;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+import de.taimos.gpsd4java.types.SATObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+
+/**
+ * Decodes the NMEA 0183 sentences GPSd sends in NMEA watch mode into {@link TPVObject}s, {@link SKYObject}s and
+ * {@link GSTObject}s<br>
+ * <br>
+ * The sentences of one reporting cycle of the receiver (GGA, RMC, GSA, GSV and VTG) are merged into one TPV and one
+ * SKY object, which are passed on once after the last sentence of the cycle. The last sentence is learned from the first
+ * change of the time, like GPSd does, by its talker and type and how often it was repeated at the end of the cycle, e.g.
+ * the GNGSA sentences of several constellations. Sentences that are not decoded, like GLL, count as well, and a group of
+ * GSV sentences counts with its last part. GST sentences are passed on at once. Other sentences are ignored.<br>
+ * <br>
+ * Sentences are decoded from the received bytes without creating strings. The parser keeps the state of the current
+ * cycle, so it must only be used by one thread and for one receiver.
+ */
+public class NMEAParser {
+
+    private static final int MAX_FIELDS = 32;
+
+    private static final int MAX_SATELLITES = 128;
+
+    private static final double KNOTS = 1852.0 / 3600.0;
+
+    private static final double KILOMETERS_PER_HOUR = 1000.0 / 3600.0;
+
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private static final int GGA = code('G', 'G', 'A');
+
+    private static final int RMC = code('R', 'M', 'C');
+
+    private static final int GSA = code('G', 'S', 'A');
+
+    private static final int GSV = code('G', 'S', 'V');
+
+    private static final int VTG = code('V', 'T', 'G');
+
+    private static final int GST = code('G', 'S', 'T');
+
+    private final boolean reuseObjects;
+
+    private final TPVObject reusableTPV = new TPVObject();
+
+    private final SKYObject reusableSKY = new SKYObject();
+
+    private final List<SATObject> reusableSatellites = new ArrayList<SATObject>(32);
+
+    // fields of the current sentence, the address field is field 0
+    private byte[] line;
+
+    private final int[] fieldStart = new int[MAX_FIELDS];
+
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+
+    private int fields;
+
+    // address of the sentence ending a cycle and how often it is repeated, 0 until learned
+    private long cycleEnd;
+
+    private int cycleEndCount;
+
+    // address of the last sentence and how often it was repeated
+    private long lastAddress;
+
+    private int lastCount;
+
+    private int lastType;
+
+    // whether sentences were received since the cycle was passed on or started
+    private boolean pending;
+
+    // whether the current cycle was passed on
+    private boolean emitted;
+
+    // number of sentences ending the cycle received in the current cycle
+    private int cycleEndSeen;
+
+    // days since the epoch of the last RMC date, -1 if none was received
+    private long day = -1;
+
+    // state of the current cycle
+    private double time = Double.NaN;
+
+    private double latitude;
+
+    private double longitude;
+
+    private double altitude;
+
+    private double speed;
+
+    private double course;
+
+    private boolean hasPosition;
+
+    private int fixType;
+
+    private int quality;
+
+    private boolean rmcValid;
+
+    private double hdop;
+
+    private double pdop;
+
+    private double vdop;
+
+    private final int[] used = new int[MAX_SATELLITES];
+
+    private int usedCount;
+
+    private final int[] prn = new int[MAX_SATELLITES];
+
+    private final int[] elevation = new int[MAX_SATELLITES];
+
+    private final int[] azimuth = new int[MAX_SATELLITES];
+
+    private final int[] signalStrength = new int[MAX_SATELLITES];
+
+    private int satellites;
+
+    private boolean skyComplete;
+
+    /**
+     * Create a parser passing new objects for every cycle
+     */
+    public NMEAParser() {
+        this(false);
+    }
+
+    /**
+     * @param reuseObjects
+     *            <code>true</code> to pass the same TPV and SKY objects for every cycle, they are only valid until the
+     *            next sentence is parsed
+     */
+    public NMEAParser(final boolean reuseObjects) {
+        this.reuseObjects = reuseObjects;
+        this.resetCycle();
+    }
+
+    /**
+     * @return <code>true</code> if the line is an NMEA sentence
+     */
+    public static boolean isSentence(final byte[] buffer, final int offset, final int length) {
+        return (length > 0) && (buffer[offset] == '$');
+    }
+
+    /**
+     * Parse an NMEA sentence
+     *
+     * @param buffer
+     *            the buffer holding the sentence
+     * @param offset
+     *            the offset of the sentence, starting with <code>$</code>
+     * @param length
+     *            the length of the sentence without line terminator
+     * @param consumer
+     *            receives the objects completed by this sentence
+     * @throws ParseException
+     *             if the checksum is missing or wrong or a field can not be parsed
+     */
+    public void parse(final byte[] buffer, final int offset, final int length,
+            final Consumer<? super IGPSObject> consumer) throws ParseException {
+        this.split(buffer, offset, length);
+        final int type = this.type();
+        boolean lastPart = true;
+        try {
+            if (type == GST) {
+                this.startCycle(this.parseTime(1), consumer);
+                consumer.accept(this.parseGST());
+            } else if (type == GGA) {
+                this.startCycle(this.parseTime(1), consumer);
+                this.parseGGA();
+            } else if (type == RMC) {
+                this.startCycle(this.parseTime(1), consumer);
+                this.parseRMC();
+            } else if (type == GSA) {
+                this.parseGSA();
+            } else if (type == GSV) {
+                lastPart = this.parseGSV();
+            } else if (type == VTG) {
+                this.parseVTG();
+            }
+        } catch (final NumberFormatException e) {
+            throw new ParseException("Invalid NMEA field", e, EParseError.Malformed);
+        }
+        this.pending = true;
+        if (lastPart) {
+            this.track(type, consumer);
+        }
+    }
+
+    /*
+     * remember the sentence to learn the end of the cycle and pass the cycle on if it ended
+     */
+    private void track(final int type, final Consumer<? super IGPSObject> consumer) {
+        final long address = this.address();
+        if (address == this.lastAddress) {
+            this.lastCount++;
+        } else {
+            this.lastAddress = address;
+            this.lastCount = 1;
+        }
+        this.lastType = type;
+        if ((address == this.cycleEnd) && (++this.cycleEndSeen == this.cycleEndCount)) {
+            this.emit(consumer);
+        }
+    }
+
+    /**
+     * Forget the current cycle, e.g. after a reconnect
+     */
+    public void reset() {
+        this.resetCycle();
+        this.cycleEnd = 0;
+        this.cycleEndCount = 0;
+        this.lastAddress = 0;
+        this.lastCount = 0;
+        this.lastType = 0;
+        this.day = -1;
+    }
+
+    /*
+     * pass on the previous cycle if the time changed
+     */
+    private void startCycle(final double sentenceTime, final Consumer<? super IGPSObject> consumer) {
+        if (Double.isNaN(sentenceTime) || (sentenceTime == this.time)) {
+            return;
+        }
+        if (this.pending) {
+            // the previous sentence ended the cycle, also if it came after the cycle was passed on
+            this.cycleEnd = this.lastAddress;
+            this.cycleEndCount = this.lastCount;
+            this.emit(consumer);
+        }
+        this.resetCycle();
+        this.time = sentenceTime;
+    }
+
+    private void resetCycle() {
+        this.pending = false;
+        this.emitted = false;
+        this.cycleEndSeen = 0;
+        this.time = Double.NaN;
+        this.latitude = Double.NaN;
+        this.longitude = Double.NaN;
+        this.altitude = Double.NaN;
+        this.speed = Double.NaN;
+        this.course = Double.NaN;
+        this.hasPosition = false;
+        this.fixType = 0;
+        this.quality = -1;
+        this.rmcValid = false;
+        this.hdop = Double.NaN;
+        this.pdop = Double.NaN;
+        this.vdop = Double.NaN;
+        this.usedCount = 0;
+        this.satellites = 0;
+        this.skyComplete = false;
+    }
+
+    private void emit(final Consumer<? super IGPSObject> consumer) {
+        this.pending = false;
+        if (this.emitted) {
+            return;
+        }
+        this.emitted = true;
+        final String tag = name(this.lastType);
+        final double timestamp = this.timestamp();
+        if (this.hasPosition || (this.fixType > 0)) {
+            final TPVObject tpv = this.reuseObjects ? this.reusableTPV : new TPVObject();
+            tpv.setTag(tag);
+            tpv.setDevice(null);
+            tpv.setTimestamp(timestamp);
+            tpv.setTimestampError(Double.NaN);
+            tpv.setLatitude(this.latitude);
+            tpv.setLongitude(this.longitude);
+            tpv.setAltitude(this.altitude);
+            tpv.setLatitudeError(Double.NaN);
+            tpv.setLongitudeError(Double.NaN);
+            tpv.setAltitudeError(Double.NaN);
+            tpv.setCourse(this.course);
+            tpv.setSpeed(this.speed);
+            tpv.setClimbRate(Double.NaN);
+            tpv.setCourseError(Double.NaN);
+            tpv.setSpeedError(Double.NaN);
+            tpv.setClimbRateError(Double.NaN);
+            tpv.setMode(this.mode());
+            consumer.accept(tpv);
+        }
+        if (this.skyComplete) {
+            final SKYObject sky = this.reuseObjects ? this.reusableSKY : new SKYObject();
+            sky.setTag(tag);
+            sky.setDevice(null);
+            sky.setTimestamp(timestamp);
+            sky.setLongitudeDOP(Double.NaN);
+            sky.setLatitudeDOP(Double.NaN);
+            sky.setAltitudeDOP(this.vdop);
+            sky.setTimestampDOP(Double.NaN);
+            sky.setHorizontalDOP(this.hdop);
+            sky.setSphericalDOP(this.pdop);
+            sky.setHypersphericalDOP(Double.NaN);
+            sky.setSatellites(this.satellites());
+            consumer.accept(sky);
+        }
+    }
+
+    private ENMEAMode mode() {
+        if (this.fixType > 0) {
+            return ENMEAMode.fromInt(this.fixType);
+        }
+        if ((this.quality == 0) || ((this.quality < 0) && !this.rmcValid)) {
+            return ENMEAMode.NoFix;
+        }
+        return Double.isNaN(this.altitude) ? ENMEAMode.TwoDimensional : ENMEAMode.ThreeDimensional;
+    }
+
+    private List<SATObject> satellites() {
+        final List<SATObject> list;
+        if (this.reuseObjects) {
+            list = this.reusableSatellites;
+            while (list.size() < this.satellites) {
+                list.add(new SATObject());
+            }
+            while (list.size() > this.satellites) {
+                list.remove(list.size() - 1);
+            }
+        } else {
+            list = new ArrayList<SATObject>(this.satellites);
+            for (int i = 0; i < this.satellites; i++) {
+                list.add(new SATObject());
+            }
+        }
+        for (int i = 0; i < this.satellites; i++) {
+            final SATObject sat = list.get(i);
+            sat.setPRN(this.prn[i]);
+            sat.setElevation(this.elevation[i]);
+            sat.setAzimuth(this.azimuth[i]);
+            sat.setSignalStrength(this.signalStrength[i]);
+            sat.setUsed(this.isUsed(this.prn[i]));
+        }
+        return list;
+    }
+
+    private boolean isUsed(final int satellite) {
+        for (int i = 0; i < this.usedCount; i++) {
+            if (this.used[i] == satellite) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * seconds since the epoch, the date of the last RMC or the current date if none was received
+     */
+    private double timestamp() {
+        if (Double.isNaN(this.time)) {
+            return Double.NaN;
+        }
+        if (this.day >= 0) {
+            return (this.day * SECONDS_PER_DAY) + this.time;
+        }
+        final double now = System.currentTimeMillis() / 1000.0;
+        final double today = Math.floor(now / SECONDS_PER_DAY) * SECONDS_PER_DAY;
+        final double timestamp = today + this.time;
+        // a time shortly before midnight received after midnight
+        return ((timestamp - now) > (SECONDS_PER_DAY / 2)) ? timestamp - SECONDS_PER_DAY : timestamp;
+    }
+
+    private GSTObject parseGST() {
+        final GSTObject gst = new GSTObject();
+        gst.setTag(name(GST));
+        gst.setTimestamp(this.timestamp());
+        gst.setRms(this.parseDouble(2));
+        gst.setMajor(this.parseDouble(3));
+        gst.setMinor(this.parseDouble(4));
+        gst.setOrient(this.parseDouble(5));
+        gst.setLat(this.parseDouble(6));
+        gst.setLon(this.parseDouble(7));
+        gst.setAlt(this.parseDouble(8));
+        return gst;
+    }
+
+    private void parseGGA() {
+        this.parsePosition(2);
+        this.quality = this.parseInt(6, -1);
+        if (this.quality == 0) {
+            this.hasPosition = false;
+        }
+        final double dop = this.parseDouble(8);
+        if (!Double.isNaN(dop)) {
+            this.hdop = dop;
+        }
+        this.altitude = this.parseDouble(9);
+    }
+
+    private void parseRMC() {
+        this.rmcValid = this.isField(2, 'A');
+        if (this.rmcValid) {
+            this.parsePosition(3);
+        }
+        this.speed = this.parseDouble(7) * KNOTS;
+        this.course = this.parseDouble(8);
+        if ((this.fields > 9) && ((this.fieldEnd[9] - this.fieldStart[9]) == 6)) {
+            final int start = this.fieldStart[9];
+            final int year = this.digits(start + 4, 2);
+            this.day = TimestampDecoder.daysFromCivil((year < 80) ? 2000 + year : 1900 + year,
+                    this.digits(start + 2, 2), this.digits(start, 2));
+        }
+    }
+
+    private void parseGSA() {
+        this.fixType = this.parseInt(2, 0);
+        for (int i = 3; (i < 15) && (i < this.fields); i++) {
+            final int satellite = this.parseInt(i, 0);
+            if ((satellite > 0) && (this.usedCount < MAX_SATELLITES)) {
+                this.used[this.usedCount++] = satellite;
+            }
+        }
+        this.pdop = this.parseDouble(15);
+        this.hdop = this.parseDouble(16);
+        this.vdop = this.parseDouble(17);
+    }
+
+    /*
+     * add the satellites of a GSV sentence, true if it is the last of its group
+     */
+    private boolean parseGSV() {
+        // four fields per satellite, NMEA 4.10 adds a signal id at the end
+        for (int i = 4; ((i + 4) <= this.fields) && (this.satellites < MAX_SATELLITES); i += 4) {
+            final int satellite = this.parseInt(i, 0);
+            if (satellite <= 0) {
+                continue;
+            }
+            this.prn[this.satellites] = satellite;
+            this.elevation[this.satellites] = this.parseInt(i + 1, -1);
+            this.azimuth[this.satellites] = this.parseInt(i + 2, -1);
+            this.signalStrength[this.satellites] = this.parseInt(i + 3, -1);
+            this.satellites++;
+        }
+        if (this.parseInt(2, 0) == this.parseInt(1, 0)) {
+            this.skyComplete = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void parseVTG() {
+        if (this.isField(2, 'T')) {
+            this.course = this.parseDouble(1);
+            this.speed = this.parseDouble(5) * KNOTS;
+            if (Double.isNaN(this.speed)) {
+                this.speed = this.parseDouble(7) * KILOMETERS_PER_HOUR;
+            }
+        } else {
+            // NMEA 2.0 and older without unit fields
+            this.course = this.parseDouble(1);
+            this.speed = this.parseDouble(3) * KNOTS;
+        }
+    }
+
+    /*
+     * latitude and longitude from the four fields starting at the given one
+     */
+    private void parsePosition(final int field) {
+        final double lat = this.parseCoordinate(field, 'S');
+        final double lon = this.parseCoordinate(field + 2, 'W');
+        if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+            this.latitude = lat;
+            this.longitude = lon;
+            this.hasPosition = true;
+        }
+    }
+
+    /*
+     * degrees from (d)ddmm.mmmm and the hemisphere in the next field
+     */
+    private double parseCoordinate(final int field, final char negative) {
+        final double value = this.parseDouble(field);
+        if (Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        final double degrees = Math.floor(value / 100);
+        final double coordinate = degrees + ((value - (degrees * 100)) / 60);
+        return this.isField(field + 1, negative) ? -coordinate : coordinate;
+    }
+
+    /*
+     * seconds of the day from hhmmss.sss
+     */
+    private double parseTime(final int field) {
+        if ((field >= this.fields) || ((this.fieldEnd[field] - this.fieldStart[field]) < 6)) {
+            return Double.NaN;
+        }
+        final int start = this.fieldStart[field];
+        return (this.digits(start, 2) * 3600) + (this.digits(start + 2, 2) * 60)
+                + DecimalParser.parseDouble(this.line, start + 4, this.fieldEnd[field]);
+    }
+
+    private int digits(final int start, final int count) {
+        int value = 0;
+        for (int i = start; i < (start + count); i++) {
+            final int digit = this.line[i] - '0';
+            if ((digit < 0) || (digit > 9)) {
+                throw new NumberFormatException("Not a digit");
+            }
+            value = (value * 10) + digit;
+        }
+        return value;
+    }
+
+    private double parseDouble(final int field) {
+        if ((field >= this.fields) || (this.fieldStart[field] == this.fieldEnd[field])) {
+            return Double.NaN;
+        }
+        return DecimalParser.parseDouble(this.line, this.fieldStart[field], this.fieldEnd[field]);
+    }
+
+    private int parseInt(final int field, final int fallbackValue) {
+        if ((field >= this.fields) || (this.fieldStart[field] == this.fieldEnd[field])) {
+            return fallbackValue;
+        }
+        return DecimalParser.parseInt(this.line, this.fieldStart[field], this.fieldEnd[field]);
+    }
+
+    private boolean isField(final int field, final char value) {
+        return (field < this.fields) && ((this.fieldEnd[field] - this.fieldStart[field]) == 1)
+                && (this.line[this.fieldStart[field]] == value);
+    }
+
+    /*
+     * validate the checksum and find the fields
+     */
+    private void split(final byte[] buffer, final int offset, final int length) throws ParseException {
+        int end = offset + length;
+        while ((end > offset) && (buffer[end - 1] <= ' ')) {
+            end--;
+        }
+        if (((end - offset) < 4) || (buffer[offset] != '$') || (buffer[end - 3] != '*')) {
+            throw new ParseException("NMEA sentence without checksum", EParseError.Malformed);
+        }
+        final int star = end - 3;
+        int checksum = 0;
+        for (int i = offset + 1; i < star; i++) {
+            checksum ^= buffer[i];
+        }
+        if (checksum != ((hex(buffer[star + 1]) << 4) | hex(buffer[star + 2]))) {
+            throw new ParseException("NMEA checksum mismatch", EParseError.Malformed);
+        }
+        this.line = buffer;
+        this.fields = 0;
+        int start = offset + 1;
+        for (int i = start; i <= star; i++) {
+            if ((i == star) || (buffer[i] == ',')) {
+                if (this.fields < MAX_FIELDS) {
+                    this.fieldStart[this.fields] = start;
+                    this.fieldEnd[this.fields] = i;
+                    this.fields++;
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /*
+     * code of the sentence type from the address field, 0 for proprietary and unknown sentences
+     */
+    private int type() {
+        final int start = this.fieldStart[0];
+        final int end = this.fieldEnd[0];
+        if (((end - start) != 5) || (this.line[start] == 'P')) {
+            return 0;
+        }
+        return code(this.line[end - 3], this.line[end - 2], this.line[end - 1]);
+    }
+
+    /*
+     * the talker and type of the sentence, up to eight bytes of the address field
+     */
+    private long address() {
+        final int start = this.fieldStart[0];
+        final int end = Math.min(this.fieldEnd[0], start + 8);
+        long address = 0;
+        for (int i = start; i < end; i++) {
+            address = (address << 8) | (this.line[i] & 0xFF);
+        }
+        return address;
+    }
+
+    private static int code(final int a, final int b, final int c) {
+        return (a << 16) | (b << 8) | c;
+    }
+
+    private static String name(final int type) {
+        if (type == GGA) {
+            return "GGA";
+        } else if (type == RMC) {
+            return "RMC";
+        } else if (type == GSA) {
+            return "GSA";
+        } else if (type == GSV) {
+            return "GSV";
+        } else if (type == VTG) {
+            return "VTG";
+        } else if (type == GST) {
+            return "GST";
+        } else if (type == 0) {
+            return null;
+        }
+        return new String(new char[] { (char) (type >> 16), (char) ((type >> 8) & 0xFF), (char) (type & 0xFF) });
+    }
+
+    private static int hex(final byte c) {
+        if ((c >= '0') && (c <= '9')) {
+            return c - '0';
+        }
+        if ((c >= 'A') && (c <= 'F')) {
+            return c - 'A' + 10;
+        }
+        if ((c >= 'a') && (c <= 'f')) {
+            return c - 'a' + 10;
+        }
+        return -256;
+    }
+}
@@ -0,0 +1,195 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+
+/**
+ * Parses lines on an executor and hands the results to the endpoint in the order the lines arrived<br>
+ * <br>
+ * Lines are numbered by the single thread reading from GPSd. Every finished parse task stores its result in the slot
+ * of its number and then tries to emit the results from the oldest number on. Only one thread emits at a time, so the
+ * endpoint sees the objects in order and never concurrently.
+ */
+final class ParallelParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelParser.class);
+
+    // result of a line the parser returned nothing for
+    private static final Object EMPTY = new Object();
+
+    private final GPSdEndpoint endpoint;
+
+    private final Executor executor;
+
+    private final AtomicReferenceArray<Object> results;
+
+    // free slots, taken by the reading thread and released when a result is emitted
+    private final Semaphore free;
+
+    private final Lock emitting = new ReentrantLock();
+
+    // number of the next line, only used by the reading thread
+    private long nextLine;
+
+    // number of the next result to emit, only changed while holding emitting
+    private volatile long nextResult;
+
+    ParallelParser(final GPSdEndpoint endpoint, final Executor executor, final int maxPending) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor can not be null!");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Illegal number of pending lines: " + maxPending);
+        }
+        this.endpoint = endpoint;
+        this.executor = executor;
+        this.results = new AtomicReferenceArray<Object>(maxPending);
+        this.free = new Semaphore(maxPending);
+    }
+
+    /**
+     * queue a line for parsing, blocks while the maximum number of lines is pending
+     *
+     * @param resultParser
+     *            the parser to use
+     * @param buffer
+     *            the buffer holding the line, copied before this method returns
+     * @param offset
+     *            the offset of the line in the buffer
+     * @param length
+     *            the length of the line
+     */
+    void submit(final AbstractResultParser resultParser, final byte[] buffer, final int offset, final int length) {
+        final byte[] line = new byte[length];
+        System.arraycopy(buffer, offset, line, 0, length);
+        this.free.acquireUninterruptibly();
+        final ParseTask task = new ParseTask(this.nextLine++, resultParser, line);
+        try {
+            this.executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * queue an object parsed by the reading thread, it is handed to the endpoint after the lines submitted before
+     *
+     * @param object
+     *            the parsed object
+     */
+    void submitParsed(final IGPSObject object) {
+        this.free.acquireUninterruptibly();
+        this.results.set(this.slot(this.nextLine++), object);
+        this.emit();
+    }
+
+    /**
+     * @return the number of lines parsed or waiting to be handed to the endpoint
+     */
+    int pending() {
+        return this.results.length() - this.free.availablePermits();
+    }
+
+    private int slot(final long line) {
+        return (int) (line % this.results.length());
+    }
+
+    /*
+     * emit the results in order until the next one is not parsed yet
+     */
+    private void emit() {
+        while (this.emitting.tryLock()) {
+            try {
+                Object result;
+                while ((result = this.results.get(this.slot(this.nextResult))) != null) {
+                    this.results.set(this.slot(this.nextResult), null);
+                    this.nextResult++;
+                    this.free.release();
+                    this.handle(result);
+                }
+            } finally {
+                this.emitting.unlock();
+            }
+            // a result stored while we were releasing the lock would be left behind otherwise
+            if (this.results.get(this.slot(this.nextResult)) == null) {
+                return;
+            }
+        }
+    }
+
+    private void handle(final Object result) {
+        try {
+            if (result instanceof IGPSObject) {
+                this.endpoint.handle((IGPSObject) result);
+            } else if (result instanceof ParseException) {
+                this.endpoint.handleParseError((ParseException) result);
+            } else if (result instanceof Exception) {
+                ParallelParser.LOG.warn("Problem encountered while parsing line", (Exception) result);
+            }
+        } catch (final RuntimeException e) {
+            ParallelParser.LOG.warn("Problem encountered while handling line", e);
+        }
+    }
+
+    private final class ParseTask implements Runnable {
+
+        private final long number;
+
+        private final AbstractResultParser resultParser;
+
+        private final byte[] line;
+
+        ParseTask(final long number, final AbstractResultParser resultParser, final byte[] line) {
+            this.number = number;
+            this.resultParser = resultParser;
+            this.line = line;
+        }
+
+        @Override
+        public void run() {
+            Object result;
+            try {
+                result = this.resultParser.parse(this.line, 0, this.line.length);
+                if (result == null) {
+                    result = EMPTY;
+                }
+            } catch (final Exception e) {
+                result = e;
+            }
+            ParallelParser.this.results.set(ParallelParser.this.slot(this.number), result);
+            ParallelParser.this.emit();
+        }
+    }
+}
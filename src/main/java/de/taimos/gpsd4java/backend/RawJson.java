@@ -0,0 +1,491 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers working on the raw bytes of a JSON line without parsing it into tokens<br>
+ * <br>
+ * Values are addressed by the range <code>[start, end)</code> of their text in the line. These helpers do not need
+ * Gson.
+ */
+final class RawJson {
+
+    private RawJson() {
+        // static only
+    }
+
+    /**
+     * Receives the members of a JSON object
+     */
+    interface MemberSink {
+
+        /**
+         * @param nameStart
+         *            the start of the name, after the quote
+         * @param nameEnd
+         *            the end of the name, before the quote
+         * @param valueStart
+         *            the start of the value
+         * @param valueEnd
+         *            the end of the value
+         */
+        void member(int nameStart, int nameEnd, int valueStart, int valueEnd);
+    }
+
+    /**
+     * Receives the elements of a JSON array
+     */
+    interface ElementSink {
+
+        /**
+         * @param valueStart
+         *            the start of the element
+         * @param valueEnd
+         *            the end of the element
+         */
+        void element(int valueStart, int valueEnd);
+    }
+
+    /**
+     * Find the members of a JSON object and record the range of the values of the given names. The structure of the
+     * whole line is checked, but values are not decoded. Names containing escapes are ignored.
+     *
+     * @param line
+     *            the line
+     * @param start
+     *            the start of the line
+     * @param end
+     *            the end of the line
+     * @param names
+     *            the member names to look for
+     * @param starts
+     *            receives the start of each found value, entries of missing names are left unchanged
+     * @param ends
+     *            receives the end of each found value
+     * @return <code>false</code> if the line is not a single well-formed JSON object
+     */
+    static boolean scanMembers(final byte[] line, final int start, final int end, final byte[][] names,
+            final int[] starts, final int[] ends) {
+        return scanMembers(line, start, end, (nameStart, nameEnd, valueStart, valueEnd) -> {
+            final int field = indexOf(names, line, nameStart, nameEnd);
+            if (field >= 0) {
+                starts[field] = valueStart;
+                ends[field] = valueEnd;
+            }
+        });
+    }
+
+    /**
+     * Pass the members of a JSON object to the sink. The structure of the whole range is checked, but values are not
+     * decoded.
+     *
+     * @param line
+     *            the line
+     * @param start
+     *            the start of the object
+     * @param end
+     *            the end of the object
+     * @param sink
+     *            receives the members in the order they appear
+     * @return <code>false</code> if the range is not a single well-formed JSON object
+     */
+    static boolean scanMembers(final byte[] line, final int start, final int end, final MemberSink sink) {
+        int i = skipWhitespace(line, start, end);
+        if ((i >= end) || (line[i] != '{')) {
+            return false;
+        }
+        i = skipWhitespace(line, i + 1, end);
+        if ((i < end) && (line[i] == '}')) {
+            return skipWhitespace(line, i + 1, end) == end;
+        }
+        while (i < end) {
+            if (line[i] != '"') {
+                return false;
+            }
+            final int nameEnd = skipString(line, i, end);
+            if (nameEnd < 0) {
+                return false;
+            }
+            final int nameStart = i + 1;
+            i = skipWhitespace(line, nameEnd, end);
+            if ((i >= end) || (line[i] != ':')) {
+                return false;
+            }
+            i = skipWhitespace(line, i + 1, end);
+            final int valueEnd = skipValue(line, i, end);
+            if (valueEnd < 0) {
+                return false;
+            }
+            sink.member(nameStart, nameEnd - 1, i, valueEnd);
+            i = skipWhitespace(line, valueEnd, end);
+            if (i >= end) {
+                return false;
+            }
+            if (line[i] == '}') {
+                return skipWhitespace(line, i + 1, end) == end;
+            }
+            if (line[i] != ',') {
+                return false;
+            }
+            i = skipWhitespace(line, i + 1, end);
+        }
+        return false;
+    }
+
+    /**
+     * Pass the elements of a JSON array to the sink. Elements are not decoded.
+     *
+     * @param line
+     *            the line
+     * @param start
+     *            the start of the array
+     * @param end
+     *            the end of the array
+     * @param sink
+     *            receives the elements in their order
+     * @return <code>false</code> if the range is not a single well-formed JSON array
+     */
+    static boolean scanElements(final byte[] line, final int start, final int end, final ElementSink sink) {
+        int i = skipWhitespace(line, start, end);
+        if ((i >= end) || (line[i] != '[')) {
+            return false;
+        }
+        i = skipWhitespace(line, i + 1, end);
+        if ((i < end) && (line[i] == ']')) {
+            return skipWhitespace(line, i + 1, end) == end;
+        }
+        while (i < end) {
+            final int valueEnd = skipValue(line, i, end);
+            if (valueEnd < 0) {
+                return false;
+            }
+            sink.element(i, valueEnd);
+            i = skipWhitespace(line, valueEnd, end);
+            if (i >= end) {
+                return false;
+            }
+            if (line[i] == ']') {
+                return skipWhitespace(line, i + 1, end) == end;
+            }
+            if (line[i] != ',') {
+                return false;
+            }
+            i = skipWhitespace(line, i + 1, end);
+        }
+        return false;
+    }
+
+    /**
+     * Cheap check for lines cut off by a reconnect, the content is not validated
+     *
+     * @return <code>true</code> if the range starts with <code>{</code> and ends with <code>}</code>
+     */
+    static boolean isObjectFrame(final byte[] line, final int start, final int end) {
+        final int first = skipWhitespace(line, start, end);
+        int last = end - 1;
+        while ((last > first) && isWhitespace(line[last])) {
+            last--;
+        }
+        return (last > first) && (line[first] == '{') && (line[last] == '}');
+    }
+
+    /**
+     * @see #isObjectFrame(byte[], int, int)
+     */
+    static boolean isObjectFrame(final CharSequence line) {
+        int first = 0;
+        int last = line.length() - 1;
+        while ((first < last) && isWhitespace(line.charAt(first))) {
+            first++;
+        }
+        while ((last > first) && isWhitespace(line.charAt(last))) {
+            last--;
+        }
+        return (last > first) && (line.charAt(first) == '{') && (line.charAt(last) == '}');
+    }
+
+    /**
+     * @return <code>true</code> if the range holds the given literal, e.g. <code>true</code>
+     */
+    static boolean isLiteral(final byte[] line, final int start, final int end, final String literal) {
+        if ((end - start) != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (line[start + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the value is a JSON number
+     */
+    static boolean isNumber(final byte[] line, final int start, final int end) {
+        if (start >= end) {
+            return false;
+        }
+        final byte first = line[start];
+        return (first == '-') || ((first >= '0') && (first <= '9'));
+    }
+
+    /**
+     * @return the value as double or the fallback value if it is not a number
+     */
+    static double toDouble(final byte[] line, final int start, final int end, final double fallbackValue) {
+        if (!isNumber(line, start, end)) {
+            return fallbackValue;
+        }
+        try {
+            return DecimalParser.parseDouble(line, start, end);
+        } catch (final NumberFormatException e) {
+            return fallbackValue;
+        }
+    }
+
+    /**
+     * @return the value as int, fractions are cut off, or the fallback value if it is not a number
+     */
+    static int toInt(final byte[] line, final int start, final int end, final int fallbackValue) {
+        if (!isNumber(line, start, end)) {
+            return fallbackValue;
+        }
+        try {
+            return DecimalParser.parseInt(line, start, end);
+        } catch (final NumberFormatException e) {
+            return fallbackValue;
+        }
+    }
+
+    /**
+     * @return the decoded value or the fallback value if it is not a string
+     */
+    static String toString(final byte[] line, final int start, final int end, final String fallbackValue) {
+        if ((end - start < 2) || (line[start] != '"')) {
+            return fallbackValue;
+        }
+        for (int i = start + 1; i < (end - 1); i++) {
+            if (line[i] == '\\') {
+                return unescape(new String(line, start + 1, end - start - 2, StandardCharsets.UTF_8), fallbackValue);
+            }
+        }
+        return new String(line, start + 1, end - start - 2, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return seconds since the epoch or <code>Double.NaN</code>, numbers are taken as they are like in
+     *         {@link AbstractResultParser#parseTimestamp(com.google.gson.JsonObject, String)}
+     */
+    static double toTimestamp(final byte[] line, final int start, final int end) {
+        if (isNumber(line, start, end)) {
+            return toDouble(line, start, end, Double.NaN);
+        }
+        final String text = toString(line, start, end, null);
+        return (text == null) ? Double.NaN : TimestampDecoder.decodeEpochSeconds(text);
+    }
+
+    /**
+     * Encode a string as JSON string including the quotes
+     *
+     * @param text
+     *            the text
+     * @return the JSON string
+     */
+    static String quote(final String text) {
+        final StringBuilder json = new StringBuilder(text.length() + 2);
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+            case '"':
+                json.append("\\\"");
+                break;
+            case '\\':
+                json.append("\\\\");
+                break;
+            case '\n':
+                json.append("\\n");
+                break;
+            case '\r':
+                json.append("\\r");
+                break;
+            case '\t':
+                json.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+                break;
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /*
+     * decode the escapes of a string without the quotes, the same ones as accepted by Gson
+     */
+    private static String unescape(final String text, final String fallbackValue) {
+        final StringBuilder decoded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c != '\\') {
+                decoded.append(c);
+                continue;
+            }
+            if (++i >= text.length()) {
+                return fallbackValue;
+            }
+            final char escaped = text.charAt(i);
+            switch (escaped) {
+            case 'u':
+                if ((i + 4) >= text.length()) {
+                    return fallbackValue;
+                }
+                try {
+                    decoded.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                } catch (final NumberFormatException e) {
+                    return fallbackValue;
+                }
+                i += 4;
+                break;
+            case 't':
+                decoded.append('\t');
+                break;
+            case 'b':
+                decoded.append('\b');
+                break;
+            case 'n':
+                decoded.append('\n');
+                break;
+            case 'r':
+                decoded.append('\r');
+                break;
+            case 'f':
+                decoded.append('\f');
+                break;
+            case '\n':
+            case '\'':
+            case '"':
+            case '\\':
+            case '/':
+                decoded.append(escaped);
+                break;
+            default:
+                return fallbackValue;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static int indexOf(final byte[][] names, final byte[] line, final int start, final int end) {
+        final int length = end - start;
+        for (int n = 0; n < names.length; n++) {
+            final byte[] name = names[n];
+            if ((name.length == length) && (name[0] == line[start])) {
+                int i = 1;
+                while ((i < length) && (name[i] == line[start + i])) {
+                    i++;
+                }
+                if (i == length) {
+                    return n;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static int skipWhitespace(final byte[] line, final int start, final int end) {
+        int i = start;
+        while ((i < end) && isWhitespace(line[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return (c == ' ') || (c == '\t') || (c == '\r') || (c == '\n');
+    }
+
+    /*
+     * end of the string starting at the quote at start, -1 if it is not terminated
+     */
+    private static int skipString(final byte[] line, final int start, final int end) {
+        for (int i = start + 1; i < end; i++) {
+            if (line[i] == '\\') {
+                i++;
+            } else if (line[i] == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * end of the value starting at start, -1 if it is malformed
+     */
+    private static int skipValue(final byte[] line, final int start, final int end) {
+        if (start >= end) {
+            return -1;
+        }
+        final byte first = line[start];
+        if (first == '"') {
+            return skipString(line, start, end);
+        }
+        if ((first == '{') || (first == '[')) {
+            int depth = 0;
+            int i = start;
+            while (i < end) {
+                final byte c = line[i];
+                if (c == '"') {
+                    i = skipString(line, i, end);
+                    if (i < 0) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if ((c == '{') || (c == '[')) {
+                    depth++;
+                } else if ((c == '}') || (c == ']')) {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return -1;
+        }
+        int i = start;
+        while ((i < end) && (line[i] != ',') && (line[i] != '}') && (line[i] != ']') && (line[i] != ' ')
+                && (line[i] != '\t') && (line[i] != '\r') && (line[i] != '\n')) {
+            i++;
+        }
+        return (i == start) ? -1 : i;
+    }
+}
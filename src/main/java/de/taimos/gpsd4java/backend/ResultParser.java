@@ -22,7 +22,13 @@ package de.taimos.gpsd4java.backend;
  */
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import de.taimos.gpsd4java.types.ATTObject;
@@ -30,6 +36,7 @@ import de.taimos.gpsd4java.types.DeviceObject;
 import de.taimos.gpsd4java.types.DevicesObject;
 import de.taimos.gpsd4java.types.ENMEAMode;
 import de.taimos.gpsd4java.types.EParity;
+import de.taimos.gpsd4java.types.EParseError;
 import de.taimos.gpsd4java.types.GSTObject;
 import de.taimos.gpsd4java.types.IGPSObject;
 import de.taimos.gpsd4java.types.ParseException;
@@ -51,11 +58,132 @@ import de.taimos.gpsd4java.types.subframes.SUBFRAMEObject;
 
 /**
  * This class is used to parse responses from GPSd<br>
+ * <br>
+ * Messages are decoded by the {@link MessageDecoder} registered for their class. Decoders for classes the library
+ * does not know can be added with {@link #registerDecoder(String, MessageDecoder)} or a {@link MessageDecoderProvider}.
  *
  * @author thoeger
  */
 public class ResultParser extends AbstractResultParser {
 
+    // GPSd always sends the class first
+    private static final String CLASS_PREFIX = "{\"class\":\"";
+
+    // decoder of POLL messages of all protocol revisions
+    private static final MessageDecoder POLL_DECODER = (parser, json) -> parser.parsePOLL(json);
+
+    // decoders of the message classes known by the library, calling the parseXXX methods of the parser
+    private static final Map<String, MessageDecoder> BUILTIN_DECODERS;
+
+    // built-in decoders plus the ones of the service providers
+    private static final Map<String, MessageDecoder> DEFAULT_DECODERS;
+
+    static {
+        final Map<String, MessageDecoder> builtin = new HashMap<String, MessageDecoder>();
+        builtin.put(TPVObject.NAME, (parser, json) -> parser.parseTPV(json));
+        builtin.put(SKYObject.NAME, (parser, json) -> parser.parseSKY(json));
+        builtin.put(GSTObject.NAME, (parser, json) -> parser.parseGST(json));
+        builtin.put(ATTObject.NAME, (parser, json) -> parser.parseATT(json));
+        builtin.put(SUBFRAMEObject.NAME, (parser, json) -> parser.parseSUBFRAME(json));
+        builtin.put(VersionObject.NAME, (parser, json) -> parser.parseVERSION(json));
+        builtin.put(DevicesObject.NAME, (parser, json) -> parser.parseDEVICES(json));
+        builtin.put(DeviceObject.NAME, (parser, json) -> parser.parseDEVICE(json));
+        builtin.put(WatchObject.NAME, (parser, json) -> parser.parseWATCH(json));
+        builtin.put(PollObject.NAME, POLL_DECODER);
+        BUILTIN_DECODERS = Collections.unmodifiableMap(builtin);
+
+        final Map<String, MessageDecoder> decoders = new HashMap<String, MessageDecoder>(builtin);
+        try {
+            for (final MessageDecoderProvider provider : ServiceLoader.load(MessageDecoderProvider.class)) {
+                decoders.putAll(provider.getDecoders());
+            }
+        } catch (final ServiceConfigurationError e) {
+            AbstractResultParser.LOG.warn("Failed to load message decoders", e);
+        }
+        DEFAULT_DECODERS = Collections.unmodifiableMap(decoders);
+    }
+
+    private final Map<String, MessageDecoder> decoders = new ConcurrentHashMap<String, MessageDecoder>(
+            ResultParser.DEFAULT_DECODERS);
+
+    // set on the copies made for protocol revisions sending the current POLL layout
+    private boolean currentPoll;
+
+    /**
+     * Register a decoder for a message class, replacing the decoder registered before
+     *
+     * @param className
+     *            the GPSd class name, e.g. <code>TOFF</code>
+     * @param decoder
+     *            the decoder
+     */
+    public void registerDecoder(final String className, final MessageDecoder decoder) {
+        if (className == null) {
+            throw new IllegalArgumentException("className can not be null!");
+        }
+        if (decoder == null) {
+            throw new IllegalArgumentException("decoder can not be null!");
+        }
+        this.decoders.put(className, decoder);
+    }
+
+    /**
+     * @param className
+     *            the GPSd class name
+     * @return the decoder for the message class or <code>null</code> if there is none
+     */
+    public MessageDecoder getDecoder(final String className) {
+        return this.decoders.get(className);
+    }
+
+    @Override
+    protected boolean isDecoded(final String className) {
+        return this.decoders.containsKey(className);
+    }
+
+    /**
+     * @param className
+     *            the GPSd class name
+     * @return <code>true</code> if the message class is decoded by the <code>parseXXX</code> method of this parser
+     */
+    protected boolean isBuiltinDecoder(final String className) {
+        final MessageDecoder decoder = BUILTIN_DECODERS.get(className);
+        return (decoder != null) && (decoder == this.decoders.get(className));
+    }
+
+    /**
+     * POLL messages of protocol revisions 3.8 and later are decoded by {@link #parseCurrentPOLL(JsonObject)} without
+     * probing for the field names of older revisions. Subclasses overriding {@link #parsePOLL(JsonObject)} should
+     * override this method as well.
+     */
+    @Override
+    public AbstractResultParser forProtocol(final int major, final int minor) {
+        final boolean current = AbstractResultParser.isCurrentPollLayout(major, minor);
+        if (current == this.currentPoll) {
+            return this;
+        }
+        final ResultParser parser = (ResultParser) this.copy();
+        parser.currentPoll = current;
+        return parser;
+    }
+
+    /**
+     * Lines of a class without decoder are rejected before the JSON tree is built
+     */
+    @Override
+    public IGPSObject parse(final String line) throws ParseException {
+        if (line.startsWith(CLASS_PREFIX)) {
+            final int end = line.indexOf('"', CLASS_PREFIX.length());
+            if (end > CLASS_PREFIX.length()) {
+                final String clazz = line.substring(CLASS_PREFIX.length(), end);
+                if (!this.decoders.containsKey(clazz)) {
+                    throw new ParseException("Invalid object class: " + clazz, EParseError.UnknownClass);
+                }
+            }
+        }
+        return super.parse(line);
+    }
+
     /**
      * parse {@link JsonObject} into {@link IGPSObject}
      *
@@ -67,51 +195,37 @@ public class ResultParser extends AbstractResultParser {
      */
     @Override
     public IGPSObject parse(final JsonObject json) throws ParseException {
-        IGPSObject gps = null;
         final String clazz = optString(json, "class");
-
-        if (TPVObject.NAME.equals(clazz)) {
-            gps = this.parseTPV(json);
-        } else if (SKYObject.NAME.equals(clazz)) {
-            gps = this.parseSKY(json);
-        } else if (GSTObject.NAME.equals(clazz)) {
-            gps = this.parseGST(json);
-        } else if (ATTObject.NAME.equals(clazz)) {
-            gps = this.parseATT(json);
-        } else if (SUBFRAMEObject.NAME.equals(clazz)) {
-            gps = this.parseSUBFRAME(json);
-        } else if (VersionObject.NAME.equals(clazz)) {
-            gps = this.parseVERSION(json);
-        } else if (DevicesObject.NAME.equals(clazz)) {
-            gps = this.parseDEVICES(json);
-        } else if (DeviceObject.NAME.equals(clazz)) {
-            gps = this.parseDEVICE(json);
-        } else if (WatchObject.NAME.equals(clazz)) {
-            gps = this.parseWATCH(json);
-        } else if (PollObject.NAME.equals(clazz)) {
-            gps = this.parsePOLL(json);
-        } else if (json.has("PRN")) { // SATObject
-            gps = this.parsePRN(json);
-        } else if (json.has("deltai")) { // ALMANACObject
-            gps = this.parseALMANAC(json);
-        } else if (json.has("IODC")) { // EPHEM1Object
-            gps = this.parseEPHEM1(json);
-        } else if (json.has("Crs")) { // EPHEM2Object
-            gps = this.parseEPHEM2(json);
-        } else if (json.has("IDOT")) { // EPHEM3Object
-            gps = this.parseEPHEM3(json);
-        } else if (json.has("ERD30")) { // ERDObject
-            gps = this.parseERD(json);
-        } else if (json.has("SVH32")) { // HEALTHObject
-            gps = this.parseHEALTH(json);
-        } else if (json.has("WNa")) { // HEALTH2Object
-            gps = this.parseHEALTH2(json);
-        } else if (json.has("WNlsf")) { // IONOObject
-            gps = this.parseIONO(json);
-        } else {
-            throw new ParseException("Invalid object class: " + clazz);
+        final MessageDecoder decoder = this.decoders.get(clazz);
+        if ((decoder == POLL_DECODER) && this.currentPoll) {
+            return this.parseCurrentPOLL(json);
         }
-        return gps;
+        if (decoder != null) {
+            return decoder.decode(this, json);
+        }
+        if (clazz.isEmpty()) {
+            // nested objects without class
+            if (json.has("PRN")) { // SATObject
+                return this.parsePRN(json);
+            } else if (json.has("deltai")) { // ALMANACObject
+                return this.parseALMANAC(json);
+            } else if (json.has("IODC")) { // EPHEM1Object
+                return this.parseEPHEM1(json);
+            } else if (json.has("Crs")) { // EPHEM2Object
+                return this.parseEPHEM2(json);
+            } else if (json.has("IDOT")) { // EPHEM3Object
+                return this.parseEPHEM3(json);
+            } else if (json.has("ERD30")) { // ERDObject
+                return this.parseERD(json);
+            } else if (json.has("SVH32")) { // HEALTHObject
+                return this.parseHEALTH(json);
+            } else if (json.has("WNa")) { // HEALTH2Object
+                return this.parseHEALTH2(json);
+            } else if (json.has("WNlsf")) { // IONOObject
+                return this.parseIONO(json);
+            }
+        }
+        throw new ParseException("Invalid object class: " + clazz, EParseError.UnknownClass);
     }
 
     protected IGPSObject parseIONO(final JsonObject json) {
@@ -257,6 +371,19 @@ public class ResultParser extends AbstractResultParser {
         return gps;
     }
 
+    /**
+     * Parse a POLL message of protocol revision 3.8 or later
+     */
+    protected IGPSObject parseCurrentPOLL(final JsonObject json) throws ParseException {
+        final PollObject poll = new PollObject();
+        poll.setTimestamp(this.parseTimestamp(json, "time"));
+        poll.setActive(optInt(json, "active", 0));
+        poll.setFixes(this.parseObjectArray(json.getAsJsonArray("tpv"), TPVObject.class));
+        poll.setSkyviews(this.parseObjectArray(json.getAsJsonArray("sky"), SKYObject.class));
+        poll.setGst(this.parseObjectArray(json.getAsJsonArray("gst"), GSTObject.class));
+        return poll;
+    }
+
     protected IGPSObject parsePOLL(final JsonObject json) throws ParseException {
         IGPSObject gps;
         // for gpsd version > 3.5
@@ -352,29 +479,54 @@ public class ResultParser extends AbstractResultParser {
         subframe.setPageid(optInt(json, "pageid"));
         if (json.has("system_message")) {
             subframe.setSystemMessage(optString(json, "system_message"));
-        } else if (json.has(ALMANACObject.NAME)) {
-            subframe.setAlmanac((ALMANACObject) this.parse(json.getAsJsonObject(ALMANACObject.NAME)));
-        } else if (json.has(EPHEM1Object.NAME)) {
-            subframe.setEphem1((EPHEM1Object) this.parse(json.getAsJsonObject(EPHEM1Object.NAME)));
-        } else if (json.has(EPHEM2Object.NAME)) {
-            subframe.setEphem2((EPHEM2Object) this.parse(json.getAsJsonObject(EPHEM2Object.NAME)));
-        } else if (json.has(EPHEM3Object.NAME)) {
-            subframe.setEphem3((EPHEM3Object) this.parse(json.getAsJsonObject(EPHEM3Object.NAME)));
-        } else if (json.has(ERDObject.NAME)) {
-            subframe.setErd((ERDObject) this.parse(json.getAsJsonObject(ERDObject.NAME)));
-        } else if (json.has(HEALTHObject.NAME)) {
-            subframe.setHealth((HEALTHObject) this.parse(json.getAsJsonObject(HEALTHObject.NAME)));
-        } else if (json.has(HEALTH2Object.NAME)) {
-            subframe.setHealth2((HEALTH2Object) this.parse(json.getAsJsonObject(HEALTH2Object.NAME)));
-        } else if (json.has(IONOObject.NAME)) {
-            subframe.setIono((IONOObject) this.parse(json.getAsJsonObject(IONOObject.NAME)));
-        } else {
+        } else if (!this.parseSubframePayload(subframe, json)) {
             AbstractResultParser.LOG.error("Unknown subframe: {}", json.toString());
         }
         gps = subframe;
         return gps;
     }
 
+    /*
+     * decode the payload by its key, false if there is no known payload
+     */
+    private boolean parseSubframePayload(final SUBFRAMEObject subframe, final JsonObject json) {
+        for (final Map.Entry<String, JsonElement> entry : json.entrySet()) {
+            if (!entry.getValue().isJsonObject()) {
+                continue;
+            }
+            final JsonObject payload = entry.getValue().getAsJsonObject();
+            switch (entry.getKey()) {
+            case ALMANACObject.NAME:
+                subframe.setAlmanac((ALMANACObject) this.parseALMANAC(payload));
+                return true;
+            case EPHEM1Object.NAME:
+                subframe.setEphem1((EPHEM1Object) this.parseEPHEM1(payload));
+                return true;
+            case EPHEM2Object.NAME:
+                subframe.setEphem2((EPHEM2Object) this.parseEPHEM2(payload));
+                return true;
+            case EPHEM3Object.NAME:
+                subframe.setEphem3((EPHEM3Object) this.parseEPHEM3(payload));
+                return true;
+            case ERDObject.NAME:
+                subframe.setErd((ERDObject) this.parseERD(payload));
+                return true;
+            case HEALTHObject.NAME:
+                subframe.setHealth((HEALTHObject) this.parseHEALTH(payload));
+                return true;
+            case HEALTH2Object.NAME:
+                subframe.setHealth2((HEALTH2Object) this.parseHEALTH2(payload));
+                return true;
+            case IONOObject.NAME:
+                subframe.setIono((IONOObject) this.parseIONO(payload));
+                return true;
+            default:
+                break;
+            }
+        }
+        return false;
+    }
+
     protected IGPSObject parseATT(final JsonObject json) {
         IGPSObject gps;
         final ATTObject att = new ATTObject();
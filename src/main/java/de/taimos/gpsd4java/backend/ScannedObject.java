@@ -0,0 +1,212 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A JSON object located in a line by {@link RawJson}, values are decoded when they are read<br>
+ * <br>
+ * The accessors follow the <code>optXXX</code> methods of {@link AbstractResultParser}: a missing member or a value
+ * of another type gives the fallback value. If a name appears more than once, the last value counts.
+ */
+final class ScannedObject implements RawJson.MemberSink {
+
+    private final byte[] line;
+
+    private final int start;
+
+    private final int end;
+
+    // name start, name end, value start and value end of every member
+    private int[] ranges = new int[4 * 16];
+
+    private int size;
+
+    private ScannedObject(final byte[] line, final int start, final int end) {
+        this.line = line;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param line
+     *            the line
+     * @param start
+     *            the start of the object
+     * @param end
+     *            the end of the object
+     * @return the object or <code>null</code> if the range is not a well-formed JSON object
+     */
+    static ScannedObject scan(final byte[] line, final int start, final int end) {
+        final ScannedObject object = new ScannedObject(line, start, end);
+        return RawJson.scanMembers(line, start, end, object) ? object : null;
+    }
+
+    @Override
+    public void member(final int nameStart, final int nameEnd, final int valueStart, final int valueEnd) {
+        if ((4 * (this.size + 1)) > this.ranges.length) {
+            this.ranges = Arrays.copyOf(this.ranges, this.ranges.length * 2);
+        }
+        final int base = 4 * this.size++;
+        this.ranges[base] = nameStart;
+        this.ranges[base + 1] = nameEnd;
+        this.ranges[base + 2] = valueStart;
+        this.ranges[base + 3] = valueEnd;
+    }
+
+    /**
+     * @return the number of members
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the name of the member at the given index
+     */
+    String name(final int index) {
+        return RawJson.toString(this.line, this.ranges[4 * index] - 1, this.ranges[(4 * index) + 1] + 1, "");
+    }
+
+    /**
+     * @return the member at the given index if it is an object, <code>null</code> otherwise
+     */
+    ScannedObject getObject(final int index) {
+        final int start = this.ranges[(4 * index) + 2];
+        if (this.line[start] != '{') {
+            return null;
+        }
+        return ScannedObject.scan(this.line, start, this.ranges[(4 * index) + 3]);
+    }
+
+    boolean has(final String name) {
+        return this.find(name) >= 0;
+    }
+
+    double optDouble(final String name, final double fallbackValue) {
+        final int index = this.find(name);
+        return (index < 0) ? fallbackValue : RawJson.toDouble(this.line, this.valueStart(index), this.valueEnd(index),
+                fallbackValue);
+    }
+
+    int optInt(final String name, final int fallbackValue) {
+        final int index = this.find(name);
+        return (index < 0) ? fallbackValue : RawJson.toInt(this.line, this.valueStart(index), this.valueEnd(index),
+                fallbackValue);
+    }
+
+    int optInt(final String name) {
+        return this.optInt(name, 0);
+    }
+
+    boolean optBoolean(final String name, final boolean fallbackValue) {
+        final int index = this.find(name);
+        if (index >= 0) {
+            if (RawJson.isLiteral(this.line, this.valueStart(index), this.valueEnd(index), "true")) {
+                return true;
+            }
+            if (RawJson.isLiteral(this.line, this.valueStart(index), this.valueEnd(index), "false")) {
+                return false;
+            }
+        }
+        return fallbackValue;
+    }
+
+    String optString(final String name, final String fallbackValue) {
+        final int index = this.find(name);
+        return (index < 0) ? fallbackValue : RawJson.toString(this.line, this.valueStart(index), this.valueEnd(index),
+                fallbackValue);
+    }
+
+    String optString(final String name) {
+        return this.optString(name, "");
+    }
+
+    /**
+     * @return seconds since the epoch or <code>Double.NaN</code> if the member is missing or can not be parsed
+     */
+    double optTimestamp(final String name) {
+        final int index = this.find(name);
+        return (index < 0) ? Double.NaN : RawJson.toTimestamp(this.line, this.valueStart(index), this.valueEnd(index));
+    }
+
+    /**
+     * @return the objects of the array member, an empty list if the member is missing or <code>null</code> if it is no
+     *         array of objects
+     */
+    List<ScannedObject> getObjects(final String name) {
+        final List<ScannedObject> objects = new ArrayList<ScannedObject>(10);
+        final int index = this.find(name);
+        if (index < 0) {
+            return objects;
+        }
+        final boolean[] valid = { true };
+        final boolean array = RawJson.scanElements(this.line, this.valueStart(index), this.valueEnd(index),
+                (valueStart, valueEnd) -> {
+                    final ScannedObject element = ScannedObject.scan(this.line, valueStart, valueEnd);
+                    if (element == null) {
+                        valid[0] = false;
+                    } else {
+                        objects.add(element);
+                    }
+                });
+        return (array && valid[0]) ? objects : null;
+    }
+
+    private int valueStart(final int index) {
+        return this.ranges[(4 * index) + 2];
+    }
+
+    private int valueEnd(final int index) {
+        return this.ranges[(4 * index) + 3];
+    }
+
+    /*
+     * index of the last member with the name, -1 if there is none
+     */
+    private int find(final String name) {
+        final int length = name.length();
+        for (int index = this.size - 1; index >= 0; index--) {
+            final int start = this.ranges[4 * index];
+            if ((this.ranges[(4 * index) + 1] - start) == length) {
+                int i = 0;
+                while ((i < length) && (this.line[start + i] == name.charAt(i))) {
+                    i++;
+                }
+                if (i == length) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.line, this.start, this.end - this.start, StandardCharsets.UTF_8);
+    }
+}
@@ -21,12 +21,22 @@ package de.taimos.gpsd4java.backend;
  */
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.SocketException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.taimos.gpsd4java.types.ParseException;
+
 /**
  * thread reading input from GPSd server
  *
@@ -36,6 +46,8 @@ public class SocketThread extends Thread {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(SocketThread.class);
 	
+	private final InputStream input;
+	
 	private final BufferedReader reader;
 	
 	private final GPSdEndpoint endpoint;
@@ -44,68 +56,192 @@ public class SocketThread extends Thread {
 	
 	private final WaitableBoolean running = new WaitableBoolean(true);
 	
+	private final ThreadFactory threadFactory;
+	
+	// the input as channel, created when raw mode is first entered
+	private ReadableByteChannel channel;
+	
+	/**
+	 * @param input        the socket input
+	 * @param endpoint     the endpoint
+	 * @param resultParser the result parser
+	 * @param daemon       whether to configure the thread as a daemon, as defined in {@link Thread#setDaemon}
+	 */
+	public SocketThread(final InputStream input, final GPSdEndpoint endpoint, 
+							  final AbstractResultParser resultParser, final boolean daemon) {
+		this(input, null, endpoint, resultParser, daemon, null);
+	}
+	
+	/**
+	 * @param input         the socket input
+	 * @param endpoint      the endpoint
+	 * @param resultParser  the result parser
+	 */
+	public SocketThread(final InputStream input, final GPSdEndpoint endpoint, final AbstractResultParser resultParser) {
+		this(input, endpoint, resultParser, true);
+	}
+	
 	/**
 	 * @param reader       the socket input
 	 * @param endpoint     the endpoint
 	 * @param resultParser the result parser
 	 * @param daemon       whether to configure the thread as a daemon, as defined in {@link Thread#setDaemon}
+	 * @deprecated use {@link #SocketThread(InputStream, GPSdEndpoint, AbstractResultParser, boolean)} to avoid
+	 *             decoding every line into a String
 	 */
+	@Deprecated
 	public SocketThread(final BufferedReader reader, final GPSdEndpoint endpoint, 
 							  final AbstractResultParser resultParser, final boolean daemon) {
+		this(null, reader, endpoint, resultParser, daemon, null);
+	}
+	
+	/**
+	 * @param reader        the socket input
+	 * @param endpoint      the endpoint
+	 * @param resultParser  the result parser
+	 * @deprecated use {@link #SocketThread(InputStream, GPSdEndpoint, AbstractResultParser)} to avoid decoding every
+	 *             line into a String
+	 */
+	@Deprecated
+	public SocketThread(final BufferedReader reader, final GPSdEndpoint endpoint, final AbstractResultParser resultParser) {
+		this(reader, endpoint, resultParser, true);
+	}
+	
+	/*
+	 * the loop runs on a thread created by the given factory (e.g. a virtual thread) if it is not null
+	 */
+	SocketThread(final InputStream input, final GPSdEndpoint endpoint, final AbstractResultParser resultParser,
+							  final boolean daemon, final ThreadFactory threadFactory) {
+		this(input, null, endpoint, resultParser, daemon, threadFactory);
+	}
+	
+	private SocketThread(final InputStream input, final BufferedReader reader, final GPSdEndpoint endpoint, 
+							  final AbstractResultParser resultParser, final boolean daemon, final ThreadFactory threadFactory) {
 
 		if (resultParser == null) {
 			throw new IllegalArgumentException("resultParser can not be null!");
 		}
 		
+		this.input = input;
 		this.reader = reader;
 		this.endpoint = endpoint;
 		this.resultParser = resultParser;
+		this.threadFactory = threadFactory;
 		
 		this.setDaemon(daemon);
 		this.setName("GPS Socket Thread");
 	}
 	
-	/**
-	 * @param reader        the socket input
-	 * @param endpoint      the endpoint
-	 * @param resultParser  the result parser
-	 */
-	public SocketThread(final BufferedReader reader, final GPSdEndpoint endpoint, final AbstractResultParser resultParser) {
-		this(reader, endpoint, resultParser, true);
+	@Override
+	public synchronized void start() {
+		if (this.threadFactory == null) {
+			super.start();
+		} else {
+			// this thread object only serves as the Runnable of the created thread
+			this.threadFactory.newThread(this).start();
+		}
 	}
 	
 	@Override
 	public void run() {
-		if (this.reader != null) {
-			while (this.running.get()) {
-				try {
-					// read line from socket
-					final String s = this.reader.readLine();
-					if (s == null) {
-						break;
-					}
-					if (!s.isEmpty()) {
+		if (this.input != null) {
+			this.readFrames();
+		} else if (this.reader != null) {
+			this.readLines();
+		}
+		this.endpoint.handleConnectionLost();
+		if (this.running.get() && !Thread.interrupted()) {
+			if ((this.input != null) || (this.reader != null)) {
+				SocketThread.LOG.warn("Problem encountered while reading/parsing/handling line, attempting restart");
+			}
+			retry();
+		}
+	}
+	
+	private void readFrames() {
+		final LineFramer framer = new LineFramer();
+		while (this.running.get()) {
+			try {
+				// handle all complete lines in the buffer
+				while (!this.endpoint.isRaw() && framer.nextLine()) {
+					if (framer.lineLength() > 0) {
 						// parse line and handle it accordingly
-						this.endpoint.handle(this.resultParser.parse(s));
+						this.endpoint.handleLine(framer.array(), framer.lineOffset(), framer.lineLength());
+					}
+				}
+				if (this.endpoint.isRaw()) {
+					// the rest of the buffer already follows the WATCH line starting raw mode
+					this.endpoint.handleRaw(framer);
+					if (!this.readRaw(framer)) {
+						break;
 					}
-				} catch (final SocketException e) {
-					break; // stop 
-				} catch (final Exception e) {
-					// TODO handle this better
-					SocketThread.LOG.warn("Problem encountered while reading/parsing/handling line", e);
+					continue;
 				}
+				// read more bytes from socket
+				if (framer.fill(this.input) < 0) {
+					break;
+				}
+			} catch (final SocketException | ClosedChannelException e) {
+				break; // stop 
+			} catch (final ParseException e) {
+				this.endpoint.handleParseError(e);
+			} catch (final Exception e) {
+				// the line is lost, keep reading
+				SocketThread.LOG.warn("Problem encountered while reading/parsing/handling line", e);
 			}
 		}
-		if (this.running.get() && !Thread.interrupted()) {
-			if (this.reader != null) {
-				SocketThread.LOG.warn("Problem encountered while reading/parsing/handling line, attempting restart");
+	}
+	
+	/*
+	 * pass the received data to the endpoint until raw mode ends, false at the end of the stream
+	 */
+	private boolean readRaw(final LineFramer framer) throws IOException {
+		if (this.channel == null) {
+			// streams of channels are read directly into the direct buffer
+			this.channel = (this.input instanceof ReadableByteChannel) ? (ReadableByteChannel) this.input
+					: Channels.newChannel(this.input);
+		}
+		final ByteBuffer buffer = DirectBufferPool.acquire();
+		try {
+			while (this.running.get() && this.endpoint.isRaw()) {
+				if (this.channel.read(buffer) < 0) {
+					return false;
+				}
+				((Buffer) buffer).flip();
+				this.endpoint.handleRaw(buffer, framer);
+				((Buffer) buffer).clear();
+			}
+			return true;
+		} finally {
+			DirectBufferPool.release(buffer);
+		}
+	}
+	
+	private void readLines() {
+		while (this.running.get()) {
+			try {
+				// read line from socket
+				final String s = this.reader.readLine();
+				if (s == null) {
+					break;
+				}
+				if (!s.isEmpty()) {
+					// parse line and handle it accordingly
+					this.endpoint.handle(this.resultParser.parse(s));
+				}
+			} catch (final SocketException | ClosedChannelException e) {
+				break; // stop 
+			} catch (final ParseException e) {
+				this.endpoint.handleParseError(e);
+			} catch (final Exception e) {
+				// TODO handle this better
+				SocketThread.LOG.warn("Problem encountered while reading/parsing/handling line", e);
 			}
-			retry();
 		}
 	}
 	
 	protected void retry() {
-		if (this.reader != null) {
+		if ((this.input != null) || (this.reader != null)) {
 			SocketThread.LOG.debug("Disconnected from GPS socket, retrying connection");
 		} else {
 			SocketThread.LOG.debug("Connecting to GPSD socket");
@@ -132,8 +268,11 @@ public class SocketThread extends Thread {
 	public void halt() {
 		this.running.set(false);
 		
+		final Closeable closeable = (this.input != null) ? this.input : this.reader;
 		try {
-			this.reader.close();
+			if (closeable != null) {
+				closeable.close();
+			}
 		} catch (final IOException e) {
 			// ignore
 		}
@@ -0,0 +1,757 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import de.taimos.gpsd4java.types.ATTObject;
+import de.taimos.gpsd4java.types.ENMEAMode;
+import de.taimos.gpsd4java.types.EParseError;
+import de.taimos.gpsd4java.types.GSTObject;
+import de.taimos.gpsd4java.types.IGPSField;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+import de.taimos.gpsd4java.types.SATObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+
+/**
+ * This class is used to parse responses from GPSd without building a JSON tree<br>
+ * <br>
+ * The high rate messages (TPV, SKY, GST and ATT) are read with a streaming {@link JsonReader} and filled in one pass.
+ * All other messages, and every line that does not look like a regular GPSd message (e.g. <code>class</code> not
+ * being the first key), are handed to {@link ResultParser}, so both parsers give the same results.<br>
+ * <br>
+ * Overriding the <code>parseXXX(JsonObject)</code> methods of {@link ResultParser} has no effect for the streamed
+ * message classes.<br>
+ * <br>
+ * With {@link #setReuseObjects(boolean)} the TPV and SKY objects, including the satellites, are reused for every
+ * message instead of creating new ones. Such a parser must only be used by one thread, otherwise it is thread-safe.<br>
+ * <br>
+ * With {@link #setLazyDecoding(boolean)} the fields of TPV and SKY objects are decoded when they are first read, with
+ * {@link #setProjection(Class, Set)} the fields nobody needs are skipped.
+ *
+ * @author thoeger
+ */
+public class StreamingResultParser extends ResultParser {
+
+    private boolean reuseObjects;
+
+    private final TPVObject reusableTPV = new TPVObject();
+
+    private final SKYObject reusableSKY = new SKYObject();
+
+    private final List<SATObject> reusableSatellites = new ArrayList<SATObject>(32);
+
+    // all satellite objects created for reusableSatellites, only the first reusableSatellites.size() are in use
+    private final List<SATObject> satellitePool = new ArrayList<SATObject>(32);
+
+    private final AsciiReader reusableReader = new AsciiReader();
+
+    private boolean lazyDecoding;
+
+    // the keys to decode by message type, types without entry are decoded completely; replaced on every change
+    private volatile Map<Class<?>, Set<String>> projections = Collections.emptyMap();
+
+    /**
+     * Reuse the same TPV and SKY objects for every message. The returned objects are only valid until the next call of
+     * a parse method, use <code>copy()</code> to keep them. A parser reusing objects must only be used by one thread.
+     *
+     * @param reuseObjects
+     *            <code>true</code> to reuse objects, <code>false</code> to create new ones (default)
+     */
+    public void setReuseObjects(final boolean reuseObjects) {
+        if (reuseObjects && this.lazyDecoding) {
+            throw new IllegalStateException("Reusing objects is not possible with lazy decoding");
+        }
+        this.reuseObjects = reuseObjects;
+    }
+
+    /**
+     * @return <code>true</code> if TPV and SKY objects are reused
+     */
+    public boolean isReuseObjects() {
+        return this.reuseObjects;
+    }
+
+    /**
+     * Decode the fields of TPV and SKY objects when their getters are called for the first time instead of parsing the
+     * whole line up front. Only the positions of the values are recorded, listeners reading a few fields skip the
+     * decoding of the others. The satellites of a SKY object are built on the first call of
+     * {@link SKYObject#getSatellites()}. Applies to lines passed as bytes, e.g. by {@link GPSdEndpoint}.
+     *
+     * @param lazyDecoding
+     *            <code>true</code> to decode fields on demand, <code>false</code> to decode all fields (default)
+     */
+    public void setLazyDecoding(final boolean lazyDecoding) {
+        if (lazyDecoding && this.reuseObjects) {
+            throw new IllegalStateException("Lazy decoding is not possible with reused objects");
+        }
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    /**
+     * @return <code>true</code> if the fields of TPV and SKY objects are decoded on demand
+     */
+    public boolean isLazyDecoding() {
+        return this.lazyDecoding;
+    }
+
+    /**
+     * Only decode the given fields of TPV, SKY, GST or ATT messages. The other fields are skipped and left unset
+     * (<code>Double.NaN</code>, <code>null</code> or empty). Objects parsed by {@link ResultParser}, e.g. lines not
+     * starting with the class, and lazily decoded objects may contain all fields. {@link GPSdEndpoint} sets the
+     * projections from the fields its subscriptions need, so such a parser must not be shared with other endpoints.
+     *
+     * @param type
+     *            the message type, e.g. {@link TPVObject}
+     * @param fields
+     *            the fields of the type to decode or <code>null</code> to decode all fields (default)
+     */
+    public synchronized void setProjection(final Class<? extends IGPSObject> type,
+            final Set<? extends IGPSField> fields) {
+        final Map<Class<?>, Set<String>> changed = new HashMap<Class<?>, Set<String>>(this.projections);
+        if (fields == null) {
+            changed.remove(type);
+        } else {
+            final Set<String> keys = new HashSet<String>();
+            for (final IGPSField field : fields) {
+                if (field.getType() != type) {
+                    throw new IllegalArgumentException("Field " + field + " does not belong to " + type.getName());
+                }
+                keys.add(field.getKey());
+            }
+            changed.put(type, keys);
+        }
+        this.projections = changed;
+    }
+
+    @Override
+    public IGPSObject parse(final String line) throws ParseException {
+        if (!RawJson.isObjectFrame(line)) {
+            throw new ParseException("Parsing failed: not a complete object", EParseError.Malformed);
+        }
+        final IGPSObject gps = this.parseStreaming(new StringReader(line));
+        if (gps == null) {
+            return super.parse(line);
+        }
+        return gps;
+    }
+
+    @Override
+    public IGPSObject parse(final byte[] buffer, final int offset, final int length) throws ParseException {
+        if (!RawJson.isObjectFrame(buffer, offset, offset + length)) {
+            throw new ParseException("Parsing failed: not a complete object", EParseError.Malformed);
+        }
+        if (this.lazyDecoding) {
+            final IGPSObject gps = this.parseLazy(buffer, offset, length);
+            if (gps != null) {
+                return gps;
+            }
+        }
+        if (isAscii(buffer, offset, length)) {
+            final AsciiReader in = this.reuseObjects ? this.reusableReader : new AsciiReader();
+            in.reset(buffer, offset, length);
+            final IGPSObject gps = this.parseStreaming(in);
+            if (gps != null) {
+                return gps;
+            }
+        }
+        return super.parse(new String(buffer, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /*
+     * TPV or SKY object decoding its fields on demand, null if the line has to be parsed up front
+     */
+    private IGPSObject parseLazy(final byte[] buffer, final int offset, final int length) {
+        final int index = MessageClassScanner.scan(buffer, offset, length);
+        if (index < 0) {
+            return null;
+        }
+        final Class<?> type = MessageClassScanner.type(index);
+        if ((type == TPVObject.class) && this.isBuiltinDecoder(TPVObject.NAME)) {
+            return LazyTPVObject.scan(buffer, offset, length);
+        }
+        if ((type == SKYObject.class) && this.isBuiltinDecoder(SKYObject.NAME)) {
+            return LazySKYObject.scan(buffer, offset, length, this);
+        }
+        return null;
+    }
+
+    private IGPSObject parseStreaming(final Reader in) {
+        try {
+            final JsonReader reader = new JsonReader(in);
+            reader.setLenient(true);
+            return this.parse(reader);
+        } catch (final IOException | IllegalStateException | NumberFormatException e) {
+            // let the tree based parser report the problem
+            return null;
+        }
+    }
+
+    /**
+     * parse a single message from the given {@link JsonReader}
+     *
+     * @param reader
+     *            the reader positioned at the start of the message
+     * @return the parsed object or <code>null</code> if the message has to be parsed by {@link ResultParser}
+     * @throws IOException
+     *             if reading fails
+     */
+    protected IGPSObject parse(final JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        reader.beginObject();
+        if (!reader.hasNext() || !"class".equals(reader.nextName()) || (reader.peek() != JsonToken.STRING)) {
+            return null;
+        }
+        final String clazz = reader.nextString();
+        if (!this.isBuiltinDecoder(clazz)) {
+            // a registered decoder has to see the whole object
+            return null;
+        }
+
+        IGPSObject gps = null;
+        if (TPVObject.NAME.equals(clazz)) {
+            gps = this.parseTPV(reader);
+        } else if (SKYObject.NAME.equals(clazz)) {
+            gps = this.parseSKY(reader);
+        } else if (GSTObject.NAME.equals(clazz)) {
+            gps = this.parseGST(reader);
+        } else if (ATTObject.NAME.equals(clazz)) {
+            gps = this.parseATT(reader);
+        }
+        if ((gps == null) || (reader.peek() != JsonToken.END_DOCUMENT)) {
+            return null;
+        }
+        return gps;
+    }
+
+    protected IGPSObject parseTPV(final JsonReader reader) throws IOException {
+        final TPVObject tpv = this.reuseObjects ? this.resetTPV(this.reusableTPV) : new TPVObject();
+        tpv.setMode(ENMEAMode.NotSeen);
+
+        final Set<String> keys = this.projections.get(TPVObject.class);
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ((keys != null) && !keys.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+            case "tag":
+                tpv.setTag(nextString(reader, null));
+                break;
+            case "device":
+                tpv.setDevice(nextString(reader, null));
+                break;
+            case "time":
+                tpv.setTimestamp(this.nextTimestamp(reader));
+                break;
+            case "ept":
+                tpv.setTimestampError(nextDouble(reader, Double.NaN));
+                break;
+            case "lat":
+                tpv.setLatitude(nextDouble(reader, Double.NaN));
+                break;
+            case "lon":
+                tpv.setLongitude(nextDouble(reader, Double.NaN));
+                break;
+            case "alt":
+                tpv.setAltitude(nextDouble(reader, Double.NaN));
+                break;
+            case "epx":
+                tpv.setLongitudeError(nextDouble(reader, Double.NaN));
+                break;
+            case "epy":
+                tpv.setLatitudeError(nextDouble(reader, Double.NaN));
+                break;
+            case "epv":
+                tpv.setAltitudeError(nextDouble(reader, Double.NaN));
+                break;
+            case "track":
+                tpv.setCourse(nextDouble(reader, Double.NaN));
+                break;
+            case "speed":
+                tpv.setSpeed(nextDouble(reader, Double.NaN));
+                break;
+            case "climb":
+                tpv.setClimbRate(nextDouble(reader, Double.NaN));
+                break;
+            case "epd":
+                tpv.setCourseError(nextDouble(reader, Double.NaN));
+                break;
+            case "eps":
+                tpv.setSpeedError(nextDouble(reader, Double.NaN));
+                break;
+            case "epc":
+                tpv.setClimbRateError(nextDouble(reader, Double.NaN));
+                break;
+            case "mode":
+                tpv.setMode(ENMEAMode.fromInt(nextInt(reader, 0)));
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        return tpv;
+    }
+
+    protected IGPSObject parseSKY(final JsonReader reader) throws IOException {
+        final SKYObject sky;
+        if (this.reuseObjects) {
+            sky = this.resetSKY(this.reusableSKY);
+            this.reusableSatellites.clear();
+            sky.setSatellites(this.reusableSatellites);
+        } else {
+            sky = new SKYObject();
+            sky.setSatellites(new ArrayList<SATObject>(10));
+        }
+
+        final Set<String> keys = this.projections.get(SKYObject.class);
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ((keys != null) && !keys.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+            case "tag":
+                sky.setTag(nextString(reader, null));
+                break;
+            case "device":
+                sky.setDevice(nextString(reader, null));
+                break;
+            case "time":
+                sky.setTimestamp(this.nextTimestamp(reader));
+                break;
+            case "xdop":
+                sky.setLongitudeDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "ydop":
+                sky.setLatitudeDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "vdop":
+                sky.setAltitudeDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "tdop":
+                sky.setTimestampDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "hdop":
+                sky.setHorizontalDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "pdop":
+                sky.setSphericalDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "gdop":
+                sky.setHypersphericalDOP(nextDouble(reader, Double.NaN));
+                break;
+            case "satellites":
+                final List<SATObject> satellites = this.parseSatellites(reader);
+                if (satellites == null) {
+                    return null;
+                }
+                sky.setSatellites(satellites);
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        return sky;
+    }
+
+    protected List<SATObject> parseSatellites(final JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return null;
+        }
+        final List<SATObject> satellites;
+        if (this.reuseObjects) {
+            satellites = this.reusableSatellites;
+            satellites.clear();
+        } else {
+            satellites = new ArrayList<SATObject>(10);
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            final SATObject sat;
+            if (this.reuseObjects) {
+                final int index = satellites.size();
+                if (index == this.satellitePool.size()) {
+                    this.satellitePool.add(new SATObject());
+                }
+                sat = this.parsePRN(reader, this.satellitePool.get(index));
+            } else {
+                sat = this.parsePRN(reader);
+            }
+            if (sat == null) {
+                return null;
+            }
+            satellites.add(sat);
+        }
+        reader.endArray();
+        return satellites;
+    }
+
+    protected SATObject parsePRN(final JsonReader reader) throws IOException {
+        return this.parsePRN(reader, null);
+    }
+
+    /*
+     * parse a satellite into the given object or a new one if it is null
+     */
+    private SATObject parsePRN(final JsonReader reader, final SATObject target) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        boolean hasPRN = false;
+        int prn = -1;
+        int azimuth = -1;
+        int elevation = -1;
+        int signalStrength = -1;
+        boolean used = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "class":
+                // not a plain satellite entry
+                return null;
+            case "PRN":
+                hasPRN = true;
+                prn = nextInt(reader, -1);
+                break;
+            case "az":
+                azimuth = nextInt(reader, -1);
+                break;
+            case "el":
+                elevation = nextInt(reader, -1);
+                break;
+            case "ss":
+                signalStrength = nextInt(reader, -1);
+                break;
+            case "used":
+                used = nextBoolean(reader, false);
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        if (!hasPRN) {
+            return null;
+        }
+
+        final SATObject sat = (target == null) ? new SATObject() : target;
+        sat.setPRN(prn);
+        sat.setAzimuth(azimuth);
+        sat.setElevation(elevation);
+        sat.setSignalStrength(signalStrength);
+        sat.setUsed(used);
+        return sat;
+    }
+
+    protected IGPSObject parseGST(final JsonReader reader) throws IOException {
+        final GSTObject gst = new GSTObject();
+
+        final Set<String> keys = this.projections.get(GSTObject.class);
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ((keys != null) && !keys.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+            case "tag":
+                gst.setTag(nextString(reader, null));
+                break;
+            case "device":
+                gst.setDevice(nextString(reader, null));
+                break;
+            case "time":
+                gst.setTimestamp(this.nextTimestamp(reader));
+                break;
+            case "rms":
+                gst.setRms(nextDouble(reader, Double.NaN));
+                break;
+            case "major":
+                gst.setMajor(nextDouble(reader, Double.NaN));
+                break;
+            case "minor":
+                gst.setMinor(nextDouble(reader, Double.NaN));
+                break;
+            case "orient":
+                gst.setOrient(nextDouble(reader, Double.NaN));
+                break;
+            case "lat":
+                gst.setLat(nextDouble(reader, Double.NaN));
+                break;
+            case "lon":
+                gst.setLon(nextDouble(reader, Double.NaN));
+                break;
+            case "alt":
+                gst.setAlt(nextDouble(reader, Double.NaN));
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        return gst;
+    }
+
+    protected IGPSObject parseATT(final JsonReader reader) throws IOException {
+        final ATTObject att = new ATTObject();
+
+        final Set<String> keys = this.projections.get(ATTObject.class);
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ((keys != null) && !keys.contains(name)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+            case "tag":
+                att.setTag(nextString(reader, null));
+                break;
+            case "device":
+                att.setDevice(nextString(reader, null));
+                break;
+            case "time":
+                att.setTimestamp(this.nextTimestamp(reader));
+                break;
+            case "heading":
+                att.setHeading(nextDouble(reader, Double.NaN));
+                break;
+            case "pitch":
+                att.setPitch(nextDouble(reader, Double.NaN));
+                break;
+            case "yaw":
+                att.setYaw(nextDouble(reader, Double.NaN));
+                break;
+            case "roll":
+                att.setRoll(nextDouble(reader, Double.NaN));
+                break;
+            case "dip":
+                att.setDip(nextDouble(reader, Double.NaN));
+                break;
+            case "mag_len":
+                att.setMag_len(nextDouble(reader, Double.NaN));
+                break;
+            case "mag_x":
+                att.setMag_x(nextDouble(reader, Double.NaN));
+                break;
+            case "mag_y":
+                att.setMag_y(nextDouble(reader, Double.NaN));
+                break;
+            case "mag_z":
+                att.setMag_z(nextDouble(reader, Double.NaN));
+                break;
+            case "acc_len":
+                att.setAcc_len(nextDouble(reader, Double.NaN));
+                break;
+            case "acc_x":
+                att.setAcc_x(nextDouble(reader, Double.NaN));
+                break;
+            case "acc_y":
+                att.setAcc_y(nextDouble(reader, Double.NaN));
+                break;
+            case "acc_z":
+                att.setAcc_z(nextDouble(reader, Double.NaN));
+                break;
+            case "gyro_x":
+                att.setGyro_x(nextDouble(reader, Double.NaN));
+                break;
+            case "gyro_y":
+                att.setGyro_y(nextDouble(reader, Double.NaN));
+                break;
+            case "depth":
+                att.setDepth(nextDouble(reader, Double.NaN));
+                break;
+            case "temperature":
+                att.setTemperature(nextDouble(reader, Double.NaN));
+                break;
+            case "mag_st":
+                att.setMagState(nextString(reader, null));
+                break;
+            case "roll_st":
+                att.setRollState(nextString(reader, null));
+                break;
+            case "pitch_st":
+                att.setPitchState(nextString(reader, null));
+                break;
+            case "yaw_st":
+                att.setYawState(nextString(reader, null));
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        return att;
+    }
+
+    protected double nextTimestamp(final JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            return DecimalParser.parseDouble(reader.nextString());
+        }
+        if (token == JsonToken.STRING) {
+            return this.parseTimestamp(reader.nextString());
+        }
+        reader.skipValue();
+        return Double.NaN;
+    }
+
+    protected static String nextString(final JsonReader reader, final String fallbackValue) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return fallbackValue;
+    }
+
+    protected static double nextDouble(final JsonReader reader, final double fallbackValue) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return DecimalParser.parseDouble(reader.nextString());
+        }
+        reader.skipValue();
+        return fallbackValue;
+    }
+
+    protected static int nextInt(final JsonReader reader, final int fallbackValue) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return DecimalParser.parseInt(reader.nextString());
+        }
+        reader.skipValue();
+        return fallbackValue;
+    }
+
+    protected static boolean nextBoolean(final JsonReader reader, final boolean fallbackValue) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return fallbackValue;
+    }
+
+    private TPVObject resetTPV(final TPVObject tpv) {
+        tpv.setTag(null);
+        tpv.setDevice(null);
+        tpv.setTimestamp(Double.NaN);
+        tpv.setTimestampError(Double.NaN);
+        tpv.setLatitude(Double.NaN);
+        tpv.setLongitude(Double.NaN);
+        tpv.setAltitude(Double.NaN);
+        tpv.setLatitudeError(Double.NaN);
+        tpv.setLongitudeError(Double.NaN);
+        tpv.setAltitudeError(Double.NaN);
+        tpv.setCourse(Double.NaN);
+        tpv.setSpeed(Double.NaN);
+        tpv.setClimbRate(Double.NaN);
+        tpv.setCourseError(Double.NaN);
+        tpv.setSpeedError(Double.NaN);
+        tpv.setClimbRateError(Double.NaN);
+        tpv.setMode(null);
+        return tpv;
+    }
+
+    private SKYObject resetSKY(final SKYObject sky) {
+        sky.setTag(null);
+        sky.setDevice(null);
+        sky.setTimestamp(Double.NaN);
+        sky.setLongitudeDOP(Double.NaN);
+        sky.setLatitudeDOP(Double.NaN);
+        sky.setAltitudeDOP(Double.NaN);
+        sky.setTimestampDOP(Double.NaN);
+        sky.setHorizontalDOP(Double.NaN);
+        sky.setSphericalDOP(Double.NaN);
+        sky.setHypersphericalDOP(Double.NaN);
+        sky.setSatellites(null);
+        return sky;
+    }
+
+    private static boolean isAscii(final byte[] buffer, final int offset, final int length) {
+        for (int i = offset; i < (offset + length); i++) {
+            if (buffer[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@link Reader} over ASCII bytes, avoids decoding the line into a String first
+     */
+    private static final class AsciiReader extends Reader {
+
+        private byte[] buffer;
+
+        private int end;
+
+        private int position;
+
+        void reset(final byte[] buffer, final int offset, final int length) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) {
+            if (this.position >= this.end) {
+                return -1;
+            }
+            final int count = Math.min(len, this.end - this.position);
+            for (int i = 0; i < count; i++) {
+                cbuf[off + i] = (char) this.buffer[this.position + i];
+            }
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            this.position = this.end;
+        }
+    }
+}
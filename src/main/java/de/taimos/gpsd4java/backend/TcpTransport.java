@@ -0,0 +1,86 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * {@link GPSdTransport} over TCP
+ */
+final class TcpTransport implements GPSdTransport {
+
+    private final String server;
+
+    private final int port;
+
+    private volatile Socket socket;
+
+    TcpTransport(final String server, final int port) {
+        if (server == null) {
+            throw new IllegalArgumentException("server can not be null!");
+        }
+        if ((port < 0) || (port > 65535)) {
+            throw new IllegalArgumentException("Illegal port number: " + port);
+        }
+        this.server = server;
+        this.port = port;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        this.socket = new Socket(this.server, this.port);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return this.connected().getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return this.connected().getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Socket current = this.socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.server + ":" + this.port;
+    }
+
+    private Socket connected() throws IOException {
+        final Socket current = this.socket;
+        if (current == null) {
+            throw new IOException("Not connected");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,171 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Decoder for the ISO 8601 timestamps sent by GPSd<br>
+ * <br>
+ * Only the fixed layout <code>yyyy-MM-ddTHH:mm:ss[.fffffffff]Z</code> is supported. The fraction may have any number
+ * of digits; digits beyond nanosecond resolution are ignored. Decoding does not allocate.
+ */
+public final class TimestampDecoder {
+
+    /**
+     * returned by {@link #decodeEpochNanos(CharSequence)} if the text is not a valid timestamp
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15 };
+
+    private TimestampDecoder() {
+        // static only
+    }
+
+    /**
+     * @param text
+     *            the timestamp text
+     * @return seconds since the Unix epoch or <code>Double.NaN</code> if the text is not a valid timestamp
+     */
+    public static double decodeEpochSeconds(final CharSequence text) {
+        return decodeEpochSeconds(text, 0, text.length());
+    }
+
+    /**
+     * @param text
+     *            the text containing the timestamp
+     * @param start
+     *            the index of the first character of the timestamp
+     * @param end
+     *            the index after the last character of the timestamp
+     * @return seconds since the Unix epoch or <code>Double.NaN</code> if the text is not a valid timestamp
+     */
+    public static double decodeEpochSeconds(final CharSequence text, final int start, final int end) {
+        final long seconds = decodeSeconds(text, start, end);
+        if (seconds == INVALID) {
+            return Double.NaN;
+        }
+        // digits after the seconds: '.' followed by the fraction and the final 'Z'
+        final int digits = Math.min(end - start - 21, POWERS_OF_TEN.length - 1);
+        if (digits <= 0) {
+            return seconds;
+        }
+        final long fraction = decodeDigits(text, start + 20, start + 20 + digits);
+        if (digits <= 3) {
+            // same rounding as Date.getTime() / 1000.0
+            return ((seconds * 1000L) + (fraction * (long) POWERS_OF_TEN[3 - digits])) / 1000.0;
+        }
+        return seconds + (fraction / POWERS_OF_TEN[digits]);
+    }
+
+    /**
+     * @param text
+     *            the timestamp text
+     * @return nanoseconds since the Unix epoch or {@link #INVALID} if the text is not a valid timestamp
+     */
+    public static long decodeEpochNanos(final CharSequence text) {
+        return decodeEpochNanos(text, 0, text.length());
+    }
+
+    /**
+     * @param text
+     *            the text containing the timestamp
+     * @param start
+     *            the index of the first character of the timestamp
+     * @param end
+     *            the index after the last character of the timestamp
+     * @return nanoseconds since the Unix epoch or {@link #INVALID} if the text is not a valid timestamp
+     */
+    public static long decodeEpochNanos(final CharSequence text, final int start, final int end) {
+        final long seconds = decodeSeconds(text, start, end);
+        if (seconds == INVALID) {
+            return INVALID;
+        }
+        final int digits = Math.min(end - start - 21, 9);
+        if (digits <= 0) {
+            return seconds * NANOS_PER_SECOND;
+        }
+        final long fraction = decodeDigits(text, start + 20, start + 20 + digits);
+        return (seconds * NANOS_PER_SECOND) + (fraction * (long) POWERS_OF_TEN[9 - digits]);
+    }
+
+    /*
+     * validate the layout and return the whole seconds since the epoch
+     */
+    private static long decodeSeconds(final CharSequence text, final int start, final int end) {
+        final int length = end - start;
+        if ((length < 20) || (length == 21) || (text.charAt(end - 1) != 'Z')) {
+            return INVALID;
+        }
+        if ((text.charAt(start + 4) != '-') || (text.charAt(start + 7) != '-') || (text.charAt(start + 10) != 'T')
+                || (text.charAt(start + 13) != ':') || (text.charAt(start + 16) != ':')) {
+            return INVALID;
+        }
+        if (length > 20) {
+            if ((text.charAt(start + 19) != '.') || (decodeDigits(text, start + 20, end - 1) < 0)) {
+                return INVALID;
+            }
+        }
+        final long year = decodeDigits(text, start, start + 4);
+        final long month = decodeDigits(text, start + 5, start + 7);
+        final long day = decodeDigits(text, start + 8, start + 10);
+        final long hour = decodeDigits(text, start + 11, start + 13);
+        final long minute = decodeDigits(text, start + 14, start + 16);
+        final long second = decodeDigits(text, start + 17, start + 19);
+        if ((year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > 31) || (hour < 0) || (hour > 23)
+                || (minute < 0) || (minute > 59) || (second < 0) || (second > 60)) {
+            return INVALID;
+        }
+        return (daysFromCivil(year, month, day) * 86400L) + (hour * 3600L) + (minute * 60L) + second;
+    }
+
+    /*
+     * decimal value of the digits in the given range or -1 if there is a non digit character
+     */
+    private static long decodeDigits(final CharSequence text, final int start, final int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            if (value < 100000000000000000L) {
+                value = (value * 10) + (c - '0');
+            }
+        }
+        return value;
+    }
+
+    /*
+     * days since 1970-01-01 in the proleptic Gregorian calendar
+     */
+    static long daysFromCivil(final long year, final long month, final long day) {
+        final long y = (month <= 2) ? year - 1 : year;
+        final long era = y / 400;
+        final long yearOfEra = y - (era * 400);
+        final long dayOfYear = ((153 * (month > 2 ? month - 3 : month + 9)) + 2) / 5 + (day - 1);
+        final long dayOfEra = (yearOfEra * 365) + (yearOfEra / 4) - (yearOfEra / 100) + dayOfYear;
+        return (era * 146097) + dayOfEra - 719468;
+    }
+}
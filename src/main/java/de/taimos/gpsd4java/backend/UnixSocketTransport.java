@@ -0,0 +1,203 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link GPSdTransport} over a unix domain socket (Java 16+)<br>
+ * <br>
+ * The library is built for Java 8, so the unix domain socket API is looked up at runtime. The streams read and write
+ * the channel directly; the streams of {@link java.nio.channels.Channels} block writing while a read is pending before
+ * Java 19.
+ */
+final class UnixSocketTransport implements GPSdTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UnixSocketTransport.class);
+
+    private static final ProtocolFamily UNIX;
+
+    private static final Method OPEN;
+
+    private static final Method ADDRESS_OF;
+
+    static {
+        ProtocolFamily unix = null;
+        Method open = null;
+        Method addressOf = null;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+        } catch (final ReflectiveOperationException | IllegalArgumentException e) {
+            LOG.debug("Unix domain sockets are not supported by this runtime");
+            unix = null;
+        }
+        UNIX = unix;
+        OPEN = open;
+        ADDRESS_OF = addressOf;
+    }
+
+    private final String path;
+
+    private volatile SocketChannel channel;
+
+    UnixSocketTransport(final String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path can not be null!");
+        }
+        if (UNIX == null) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+        }
+        this.path = path;
+    }
+
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        final SocketChannel opened;
+        final SocketAddress address;
+        try {
+            opened = (SocketChannel) OPEN.invoke(null, UNIX);
+            address = (SocketAddress) ADDRESS_OF.invoke(null, this.path);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to open unix domain socket " + this.path, e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IOException("Failed to open unix domain socket " + this.path, e);
+        }
+        try {
+            opened.connect(address);
+        } catch (final IOException e) {
+            opened.close();
+            throw e;
+        }
+        this.channel = opened;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ChannelInputStream(this.connected());
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        final SocketChannel current = this.connected();
+        return new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                this.write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    current.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                current.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        final SocketChannel current = this.channel;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+
+    /*
+     * also a channel, so raw data is read into direct buffers without copying
+     */
+    private static final class ChannelInputStream extends InputStream implements ReadableByteChannel {
+
+        private final SocketChannel channel;
+
+        ChannelInputStream(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return (this.read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return (len == 0) ? 0 : this.channel.read(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return this.channel.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return this.channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    private SocketChannel connected() throws IOException {
+        final SocketChannel current = this.channel;
+        if (current == null) {
+            throw new IOException("Not connected");
+        }
+        return current;
+    }
+}
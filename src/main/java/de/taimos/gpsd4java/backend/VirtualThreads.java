@@ -0,0 +1,95 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads (Java 21+) without requiring them at compile time<br>
+ * <br>
+ * The library is built for Java 8, so the virtual thread API is looked up at runtime.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method OF_VIRTUAL;
+
+    private static final Method NAME;
+
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // fails on Java 19 and 20 unless preview features are enabled
+            factory.invoke(ofVirtual.invoke(null));
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Virtual threads are not supported by this runtime");
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+        // static only
+    }
+
+    /**
+     * @return <code>true</code> if the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create a factory for virtual threads
+     *
+     * @param prefix
+     *            the name prefix of the created threads, a counter is appended
+     * @return the factory or <code>null</code> if the runtime does not support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(final String prefix) {
+        if (OF_VIRTUAL == null) {
+            return null;
+        }
+        try {
+            final Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (final ReflectiveOperationException e) {
+            LOG.warn("Failed to create virtual thread factory", e);
+            return null;
+        }
+    }
+}
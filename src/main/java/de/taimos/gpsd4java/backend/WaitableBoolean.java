@@ -1,28 +1,53 @@
 package de.taimos.gpsd4java.backend;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
- * Not as efficient as AtomicBoolean but you can wait on it.
+ * Not as efficient as AtomicBoolean but you can wait on it.<br>
+ * Uses a {@link Lock} instead of a monitor, so waiting does not pin the carrier of a virtual thread.
  *
  * @author TimW
  */
 class WaitableBoolean {
 	
+	private final Lock lock = new ReentrantLock();
+	
+	private final Condition changed = this.lock.newCondition();
+	
 	private boolean val;
 	
 	public WaitableBoolean(boolean b) {
 		this.val = b;
 	}
 	
-	synchronized void set(boolean value) {
-		this.val = value;
-		notifyAll();
+	void set(boolean value) {
+		this.lock.lock();
+		try {
+			this.val = value;
+			this.changed.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 	
-	synchronized boolean get() {
-		return this.val;
+	boolean get() {
+		this.lock.lock();
+		try {
+			return this.val;
+		} finally {
+			this.lock.unlock();
+		}
 	}
 	
-	synchronized public void waitFor(long millis) throws InterruptedException {
-		super.wait(millis);
+	public void waitFor(long millis) throws InterruptedException {
+		this.lock.lock();
+		try {
+			this.changed.await(millis, TimeUnit.MILLISECONDS);
+		} finally {
+			this.lock.unlock();
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The fields of an {@link ATTObject}
+ */
+public enum EATTField implements IGPSField {
+	
+	/**
+	 * <code>tag</code>, see {@link ATTObject#getTag()}
+	 */
+	Tag("tag"),
+	/**
+	 * <code>device</code>, see {@link ATTObject#getDevice()}
+	 */
+	Device("device"),
+	/**
+	 * <code>time</code>, see {@link ATTObject#getTimestamp()}
+	 */
+	Timestamp("time"),
+	/**
+	 * <code>heading</code>, see {@link ATTObject#getHeading()}
+	 */
+	Heading("heading"),
+	/**
+	 * <code>pitch</code>, see {@link ATTObject#getPitch()}
+	 */
+	Pitch("pitch"),
+	/**
+	 * <code>yaw</code>, see {@link ATTObject#getYaw()}
+	 */
+	Yaw("yaw"),
+	/**
+	 * <code>roll</code>, see {@link ATTObject#getRoll()}
+	 */
+	Roll("roll"),
+	/**
+	 * <code>dip</code>, see {@link ATTObject#getDip()}
+	 */
+	Dip("dip"),
+	/**
+	 * <code>mag_len</code>, see {@link ATTObject#getMag_len()}
+	 */
+	MagLen("mag_len"),
+	/**
+	 * <code>mag_x</code>, see {@link ATTObject#getMag_x()}
+	 */
+	MagX("mag_x"),
+	/**
+	 * <code>mag_y</code>, see {@link ATTObject#getMag_y()}
+	 */
+	MagY("mag_y"),
+	/**
+	 * <code>mag_z</code>, see {@link ATTObject#getMag_z()}
+	 */
+	MagZ("mag_z"),
+	/**
+	 * <code>acc_len</code>, see {@link ATTObject#getAcc_len()}
+	 */
+	AccLen("acc_len"),
+	/**
+	 * <code>acc_x</code>, see {@link ATTObject#getAcc_x()}
+	 */
+	AccX("acc_x"),
+	/**
+	 * <code>acc_y</code>, see {@link ATTObject#getAcc_y()}
+	 */
+	AccY("acc_y"),
+	/**
+	 * <code>acc_z</code>, see {@link ATTObject#getAcc_z()}
+	 */
+	AccZ("acc_z"),
+	/**
+	 * <code>gyro_x</code>, see {@link ATTObject#getGyro_x()}
+	 */
+	GyroX("gyro_x"),
+	/**
+	 * <code>gyro_y</code>, see {@link ATTObject#getGyro_y()}
+	 */
+	GyroY("gyro_y"),
+	/**
+	 * <code>depth</code>, see {@link ATTObject#getDepth()}
+	 */
+	Depth("depth"),
+	/**
+	 * <code>temperature</code>, see {@link ATTObject#getTemperature()}
+	 */
+	Temperature("temperature"),
+	/**
+	 * <code>mag_st</code>, see {@link ATTObject#getMagState()}
+	 */
+	MagState("mag_st"),
+	/**
+	 * <code>roll_st</code>, see {@link ATTObject#getRollState()}
+	 */
+	RollState("roll_st"),
+	/**
+	 * <code>pitch_st</code>, see {@link ATTObject#getPitchState()}
+	 */
+	PitchState("pitch_st"),
+	/**
+	 * <code>yaw_st</code>, see {@link ATTObject#getYawState()}
+	 */
+	YawState("yaw_st");
+	
+	private final String key;
+	
+	private EATTField(final String key) {
+		this.key = key;
+	}
+	
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+	
+	@Override
+	public Class<? extends IGPSObject> getType() {
+		return ATTObject.class;
+	}
+}
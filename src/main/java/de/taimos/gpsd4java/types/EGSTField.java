@@ -0,0 +1,84 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The fields of a {@link GSTObject}
+ */
+public enum EGSTField implements IGPSField {
+	
+	/**
+	 * <code>tag</code>, see {@link GSTObject#getTag()}
+	 */
+	Tag("tag"),
+	/**
+	 * <code>device</code>, see {@link GSTObject#getDevice()}
+	 */
+	Device("device"),
+	/**
+	 * <code>time</code>, see {@link GSTObject#getTimestamp()}
+	 */
+	Timestamp("time"),
+	/**
+	 * <code>rms</code>, see {@link GSTObject#getRms()}
+	 */
+	Rms("rms"),
+	/**
+	 * <code>major</code>, see {@link GSTObject#getMajor()}
+	 */
+	Major("major"),
+	/**
+	 * <code>minor</code>, see {@link GSTObject#getMinor()}
+	 */
+	Minor("minor"),
+	/**
+	 * <code>orient</code>, see {@link GSTObject#getOrient()}
+	 */
+	Orient("orient"),
+	/**
+	 * <code>lat</code>, see {@link GSTObject#getLat()}
+	 */
+	Lat("lat"),
+	/**
+	 * <code>lon</code>, see {@link GSTObject#getLon()}
+	 */
+	Lon("lon"),
+	/**
+	 * <code>alt</code>, see {@link GSTObject#getAlt()}
+	 */
+	Alt("alt");
+	
+	private final String key;
+	
+	private EGSTField(final String key) {
+		this.key = key;
+	}
+	
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+	
+	@Override
+	public Class<? extends IGPSObject> getType() {
+		return GSTObject.class;
+	}
+}
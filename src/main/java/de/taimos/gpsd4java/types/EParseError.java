@@ -0,0 +1,41 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Reason of a {@link ParseException}
+ */
+public enum EParseError {
+	
+	/**
+	 * the line is not a complete JSON object, e.g. the rest of a line cut off by a reconnect
+	 */
+	Malformed,
+	/**
+	 * no decoder is registered for the class of the message
+	 */
+	UnknownClass,
+	/**
+	 * any other problem, e.g. reported by a custom decoder
+	 */
+	Other;
+	
+}
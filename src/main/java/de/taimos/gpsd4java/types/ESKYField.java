@@ -0,0 +1,88 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The fields of a {@link SKYObject}
+ */
+public enum ESKYField implements IGPSField {
+	
+	/**
+	 * <code>tag</code>, see {@link SKYObject#getTag()}
+	 */
+	Tag("tag"),
+	/**
+	 * <code>device</code>, see {@link SKYObject#getDevice()}
+	 */
+	Device("device"),
+	/**
+	 * <code>time</code>, see {@link SKYObject#getTimestamp()}
+	 */
+	Timestamp("time"),
+	/**
+	 * <code>xdop</code>, see {@link SKYObject#getLongitudeDOP()}
+	 */
+	LongitudeDOP("xdop"),
+	/**
+	 * <code>ydop</code>, see {@link SKYObject#getLatitudeDOP()}
+	 */
+	LatitudeDOP("ydop"),
+	/**
+	 * <code>vdop</code>, see {@link SKYObject#getAltitudeDOP()}
+	 */
+	AltitudeDOP("vdop"),
+	/**
+	 * <code>tdop</code>, see {@link SKYObject#getTimestampDOP()}
+	 */
+	TimestampDOP("tdop"),
+	/**
+	 * <code>hdop</code>, see {@link SKYObject#getHorizontalDOP()}
+	 */
+	HorizontalDOP("hdop"),
+	/**
+	 * <code>pdop</code>, see {@link SKYObject#getSphericalDOP()}
+	 */
+	SphericalDOP("pdop"),
+	/**
+	 * <code>gdop</code>, see {@link SKYObject#getHypersphericalDOP()}
+	 */
+	HypersphericalDOP("gdop"),
+	/**
+	 * <code>satellites</code>, see {@link SKYObject#getSatellites()}
+	 */
+	Satellites("satellites");
+	
+	private final String key;
+	
+	private ESKYField(final String key) {
+		this.key = key;
+	}
+	
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+	
+	@Override
+	public Class<? extends IGPSObject> getType() {
+		return SKYObject.class;
+	}
+}
@@ -0,0 +1,112 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The fields of a {@link TPVObject}
+ */
+public enum ETPVField implements IGPSField {
+	
+	/**
+	 * <code>tag</code>, see {@link TPVObject#getTag()}
+	 */
+	Tag("tag"),
+	/**
+	 * <code>device</code>, see {@link TPVObject#getDevice()}
+	 */
+	Device("device"),
+	/**
+	 * <code>time</code>, see {@link TPVObject#getTimestamp()}
+	 */
+	Timestamp("time"),
+	/**
+	 * <code>ept</code>, see {@link TPVObject#getTimestampError()}
+	 */
+	TimestampError("ept"),
+	/**
+	 * <code>lat</code>, see {@link TPVObject#getLatitude()}
+	 */
+	Latitude("lat"),
+	/**
+	 * <code>lon</code>, see {@link TPVObject#getLongitude()}
+	 */
+	Longitude("lon"),
+	/**
+	 * <code>alt</code>, see {@link TPVObject#getAltitude()}
+	 */
+	Altitude("alt"),
+	/**
+	 * <code>epx</code>, see {@link TPVObject#getLongitudeError()}
+	 */
+	LongitudeError("epx"),
+	/**
+	 * <code>epy</code>, see {@link TPVObject#getLatitudeError()}
+	 */
+	LatitudeError("epy"),
+	/**
+	 * <code>epv</code>, see {@link TPVObject#getAltitudeError()}
+	 */
+	AltitudeError("epv"),
+	/**
+	 * <code>track</code>, see {@link TPVObject#getCourse()}
+	 */
+	Course("track"),
+	/**
+	 * <code>speed</code>, see {@link TPVObject#getSpeed()}
+	 */
+	Speed("speed"),
+	/**
+	 * <code>climb</code>, see {@link TPVObject#getClimbRate()}
+	 */
+	ClimbRate("climb"),
+	/**
+	 * <code>epd</code>, see {@link TPVObject#getCourseError()}
+	 */
+	CourseError("epd"),
+	/**
+	 * <code>eps</code>, see {@link TPVObject#getSpeedError()}
+	 */
+	SpeedError("eps"),
+	/**
+	 * <code>epc</code>, see {@link TPVObject#getClimbRateError()}
+	 */
+	ClimbRateError("epc"),
+	/**
+	 * <code>mode</code>, see {@link TPVObject#getMode()}
+	 */
+	Mode("mode");
+	
+	private final String key;
+	
+	private ETPVField(final String key) {
+		this.key = key;
+	}
+	
+	@Override
+	public String getKey() {
+		return this.key;
+	}
+	
+	@Override
+	public Class<? extends IGPSObject> getType() {
+		return TPVObject.class;
+	}
+}
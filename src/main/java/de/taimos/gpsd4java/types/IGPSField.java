@@ -0,0 +1,37 @@
+package de.taimos.gpsd4java.types;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A field of a GPSd message, used to declare which fields a subscriber needs
+ */
+public interface IGPSField {
+	
+	/**
+	 * @return the key of the field in the JSON message
+	 */
+	String getKey();
+	
+	/**
+	 * @return the message type the field belongs to
+	 */
+	Class<? extends IGPSObject> getType();
+}
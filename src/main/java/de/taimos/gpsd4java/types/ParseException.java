@@ -21,7 +21,10 @@ package de.taimos.gpsd4java.types;
  */
 
 /**
- * {@link Exception} indication an error while parsing the GPSd line
+ * {@link Exception} indication an error while parsing the GPSd line<br>
+ * <br>
+ * The exceptions thrown by the parsers of this library carry an {@link EParseError} and no stack trace, so a corrupt
+ * feed does not cost more than a healthy one.
  *
  * @author thoeger
  */
@@ -29,11 +32,14 @@ public class ParseException extends Exception {
 	
 	private static final long serialVersionUID = 7747422116792199432L;
 	
+	private final EParseError reason;
+	
 	/**
 	 *
 	 */
 	public ParseException() {
 		super();
+		this.reason = EParseError.Other;
 	}
 	
 	/**
@@ -41,6 +47,7 @@ public class ParseException extends Exception {
 	 */
 	public ParseException(final String message) {
 		super(message);
+		this.reason = EParseError.Other;
 	}
 	
 	/**
@@ -49,6 +56,7 @@ public class ParseException extends Exception {
 	 */
 	public ParseException(final String message, final Throwable cause) {
 		super(message, cause);
+		this.reason = EParseError.Other;
 	}
 	
 	/**
@@ -56,6 +64,36 @@ public class ParseException extends Exception {
 	 */
 	public ParseException(final Throwable cause) {
 		super(cause);
+		this.reason = EParseError.Other;
+	}
+	
+	/**
+	 * Create an exception without stack trace
+	 *
+	 * @param message the message
+	 * @param reason  the reason
+	 */
+	public ParseException(final String message, final EParseError reason) {
+		this(message, null, reason);
+	}
+	
+	/**
+	 * Create an exception without stack trace
+	 *
+	 * @param message the message
+	 * @param cause   the cause
+	 * @param reason  the reason
+	 */
+	public ParseException(final String message, final Throwable cause, final EParseError reason) {
+		super(message, cause, false, false);
+		this.reason = (reason == null) ? EParseError.Other : reason;
+	}
+	
+	/**
+	 * @return the reason, {@link EParseError#Other} if none was given
+	 */
+	public EParseError getReason() {
+		return this.reason;
 	}
 	
 }
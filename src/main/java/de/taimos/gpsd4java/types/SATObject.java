@@ -132,6 +132,21 @@ public class SATObject implements IGPSObject {
 		this.used = used;
 	}
 	
+	/**
+	 * Create a copy of this object, e.g. to keep an object that is reused by the parser
+	 *
+	 * @return a new object with the same values
+	 */
+	public SATObject copy() {
+		final SATObject copy = new SATObject();
+		copy.PRN = this.PRN;
+		copy.azimuth = this.azimuth;
+		copy.elevation = this.elevation;
+		copy.signalStrength = this.signalStrength;
+		copy.used = this.used;
+		return copy;
+	}
+	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
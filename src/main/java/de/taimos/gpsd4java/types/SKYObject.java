@@ -20,6 +20,7 @@ package de.taimos.gpsd4java.types;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -253,6 +254,32 @@ public class SKYObject implements IGPSObject {
 		this.satellites = satellites;
 	}
 	
+	/**
+	 * Create a copy of this object including its satellites, e.g. to keep an object that is reused by the parser
+	 *
+	 * @return a new object with the same values
+	 */
+	public SKYObject copy() {
+		final SKYObject copy = new SKYObject();
+		copy.tag = this.tag;
+		copy.device = this.device;
+		copy.timestamp = this.timestamp;
+		copy.longitudeDOP = this.longitudeDOP;
+		copy.latitudeDOP = this.latitudeDOP;
+		copy.altitudeDOP = this.altitudeDOP;
+		copy.timestampDOP = this.timestampDOP;
+		copy.horizontalDOP = this.horizontalDOP;
+		copy.sphericalDOP = this.sphericalDOP;
+		copy.hypersphericalDOP = this.hypersphericalDOP;
+		if (this.satellites != null) {
+			copy.satellites = new ArrayList<SATObject>(this.satellites.size());
+			for (final SATObject sat : this.satellites) {
+				copy.satellites.add(sat.copy());
+			}
+		}
+		return copy;
+	}
+	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -287,54 +314,55 @@ public class SKYObject implements IGPSObject {
 		if (obj == null) {
 			return false;
 		}
-		if (this.getClass() != obj.getClass()) {
+		// equal to subclasses with the same values, e.g. objects decoded on demand, so read them by the getters
+		if (!(obj instanceof SKYObject)) {
 			return false;
 		}
 		final SKYObject other = (SKYObject) obj;
-		if (Double.doubleToLongBits(this.altitudeDOP) != Double.doubleToLongBits(other.altitudeDOP)) {
+		if (Double.doubleToLongBits(this.altitudeDOP) != Double.doubleToLongBits(other.getAltitudeDOP())) {
 			return false;
 		}
 		if (this.device == null) {
-			if (other.device != null) {
+			if (other.getDevice() != null) {
 				return false;
 			}
-		} else if (!this.device.equals(other.device)) {
+		} else if (!this.device.equals(other.getDevice())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.horizontalDOP) != Double.doubleToLongBits(other.horizontalDOP)) {
+		if (Double.doubleToLongBits(this.horizontalDOP) != Double.doubleToLongBits(other.getHorizontalDOP())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.hypersphericalDOP) != Double.doubleToLongBits(other.hypersphericalDOP)) {
+		if (Double.doubleToLongBits(this.hypersphericalDOP) != Double.doubleToLongBits(other.getHypersphericalDOP())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.latitudeDOP) != Double.doubleToLongBits(other.latitudeDOP)) {
+		if (Double.doubleToLongBits(this.latitudeDOP) != Double.doubleToLongBits(other.getLatitudeDOP())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.longitudeDOP) != Double.doubleToLongBits(other.longitudeDOP)) {
+		if (Double.doubleToLongBits(this.longitudeDOP) != Double.doubleToLongBits(other.getLongitudeDOP())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.sphericalDOP) != Double.doubleToLongBits(other.sphericalDOP)) {
+		if (Double.doubleToLongBits(this.sphericalDOP) != Double.doubleToLongBits(other.getSphericalDOP())) {
 			return false;
 		}
 		if (this.tag == null) {
-			if (other.tag != null) {
+			if (other.getTag() != null) {
 				return false;
 			}
-		} else if (!this.tag.equals(other.tag)) {
+		} else if (!this.tag.equals(other.getTag())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.timestamp) != Double.doubleToLongBits(other.timestamp)) {
+		if (Double.doubleToLongBits(this.timestamp) != Double.doubleToLongBits(other.getTimestamp())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.timestampDOP) != Double.doubleToLongBits(other.timestampDOP)) {
+		if (Double.doubleToLongBits(this.timestampDOP) != Double.doubleToLongBits(other.getTimestampDOP())) {
 			return false;
 		}
-		if (this.satellites.size() != other.satellites.size()) {
+		if (this.satellites.size() != other.getSatellites().size()) {
 			return false;
 		}
 		try {
 			for (int i = 0; i < this.satellites.size(); i++) {
-				if (!this.satellites.get(i).equals(other.satellites.get(i))) {
+				if (!this.satellites.get(i).equals(other.getSatellites().get(i))) {
 					return false;
 				}
 			}
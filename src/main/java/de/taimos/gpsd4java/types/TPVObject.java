@@ -375,6 +375,33 @@ public class TPVObject implements IGPSObject {
 		this.mode = mode;
 	}
 	
+	/**
+	 * Create a copy of this object, e.g. to keep an object that is reused by the parser
+	 *
+	 * @return a new object with the same values
+	 */
+	public TPVObject copy() {
+		final TPVObject copy = new TPVObject();
+		copy.tag = this.tag;
+		copy.device = this.device;
+		copy.timestamp = this.timestamp;
+		copy.timestampError = this.timestampError;
+		copy.latitude = this.latitude;
+		copy.longitude = this.longitude;
+		copy.altitude = this.altitude;
+		copy.latitudeError = this.latitudeError;
+		copy.longitudeError = this.longitudeError;
+		copy.altitudeError = this.altitudeError;
+		copy.course = this.course;
+		copy.speed = this.speed;
+		copy.climbRate = this.climbRate;
+		copy.courseError = this.courseError;
+		copy.speedError = this.speedError;
+		copy.climbRateError = this.climbRateError;
+		copy.mode = this.mode;
+		return copy;
+	}
+	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -422,67 +449,68 @@ public class TPVObject implements IGPSObject {
 		if (obj == null) {
 			return false;
 		}
-		if (this.getClass() != obj.getClass()) {
+		// equal to subclasses with the same values, e.g. objects decoded on demand, so read them by the getters
+		if (!(obj instanceof TPVObject)) {
 			return false;
 		}
 		final TPVObject other = (TPVObject) obj;
-		if (Double.doubleToLongBits(this.altitude) != Double.doubleToLongBits(other.altitude)) {
+		if (Double.doubleToLongBits(this.altitude) != Double.doubleToLongBits(other.getAltitude())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.altitudeError) != Double.doubleToLongBits(other.altitudeError)) {
+		if (Double.doubleToLongBits(this.altitudeError) != Double.doubleToLongBits(other.getAltitudeError())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.climbRate) != Double.doubleToLongBits(other.climbRate)) {
+		if (Double.doubleToLongBits(this.climbRate) != Double.doubleToLongBits(other.getClimbRate())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.climbRateError) != Double.doubleToLongBits(other.climbRateError)) {
+		if (Double.doubleToLongBits(this.climbRateError) != Double.doubleToLongBits(other.getClimbRateError())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.course) != Double.doubleToLongBits(other.course)) {
+		if (Double.doubleToLongBits(this.course) != Double.doubleToLongBits(other.getCourse())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.courseError) != Double.doubleToLongBits(other.courseError)) {
+		if (Double.doubleToLongBits(this.courseError) != Double.doubleToLongBits(other.getCourseError())) {
 			return false;
 		}
 		if (this.device == null) {
-			if (other.device != null) {
+			if (other.getDevice() != null) {
 				return false;
 			}
-		} else if (!this.device.equals(other.device)) {
+		} else if (!this.device.equals(other.getDevice())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.latitude) != Double.doubleToLongBits(other.latitude)) {
+		if (Double.doubleToLongBits(this.latitude) != Double.doubleToLongBits(other.getLatitude())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.latitudeError) != Double.doubleToLongBits(other.latitudeError)) {
+		if (Double.doubleToLongBits(this.latitudeError) != Double.doubleToLongBits(other.getLatitudeError())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.longitude) != Double.doubleToLongBits(other.longitude)) {
+		if (Double.doubleToLongBits(this.longitude) != Double.doubleToLongBits(other.getLongitude())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.longitudeError) != Double.doubleToLongBits(other.longitudeError)) {
+		if (Double.doubleToLongBits(this.longitudeError) != Double.doubleToLongBits(other.getLongitudeError())) {
 			return false;
 		}
-		if (this.mode != other.mode) {
+		if (this.mode != other.getMode()) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.speed) != Double.doubleToLongBits(other.speed)) {
+		if (Double.doubleToLongBits(this.speed) != Double.doubleToLongBits(other.getSpeed())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.speedError) != Double.doubleToLongBits(other.speedError)) {
+		if (Double.doubleToLongBits(this.speedError) != Double.doubleToLongBits(other.getSpeedError())) {
 			return false;
 		}
 		if (this.tag == null) {
-			if (other.tag != null) {
+			if (other.getTag() != null) {
 				return false;
 			}
-		} else if (!this.tag.equals(other.tag)) {
+		} else if (!this.tag.equals(other.getTag())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.timestamp) != Double.doubleToLongBits(other.timestamp)) {
+		if (Double.doubleToLongBits(this.timestamp) != Double.doubleToLongBits(other.getTimestamp())) {
 			return false;
 		}
-		if (Double.doubleToLongBits(this.timestampError) != Double.doubleToLongBits(other.timestampError)) {
+		if (Double.doubleToLongBits(this.timestampError) != Double.doubleToLongBits(other.getTimestampError())) {
 			return false;
 		}
 		return true;
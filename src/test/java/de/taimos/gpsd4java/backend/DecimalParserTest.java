@@ -0,0 +1,128 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecimalParserTest {
+
+    @Test
+    public void testParseDouble() {
+        assertParsed("0");
+        assertParsed("-0.0");
+        assertParsed("46.123456789");
+        assertParsed("-7.5");
+        assertParsed("1e3");
+        assertParsed("1.5E-7");
+        assertParsed("2.5e+22");
+        assertParsed("123456789012345678901234567890");
+        assertParsed("0.000000000000000000000000001");
+        assertParsed("9007199254740993");
+        assertParsed("4.9e-324");
+        assertParsed("1.7976931348623157e308");
+    }
+
+    @Test
+    public void testParseDoubleInvalid() {
+        final String[] invalid = { "", "-", ".", "1.2.3", "1e", "1x", "e5", "--1" };
+        for (final String text : invalid) {
+            try {
+                DecimalParser.parseDouble(text);
+                fail("no exception for " + text);
+            } catch (final NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseDoubleRandom() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000000; i++) {
+            assertParsed(randomNumber(random));
+        }
+    }
+
+    @Test
+    public void testParseInt() {
+        final String[] numbers = { "0", "42", "-42", "42.5", "-42.9", "2147483647", "-2147483648", "1e2", "1.5E1",
+                "12345678901" };
+        for (final String text : numbers) {
+            final int expected = new BigDecimal(text).intValue();
+            assertEquals(text, expected, DecimalParser.parseInt(text));
+            assertEquals(text, expected, DecimalParser.parseInt("[" + text + "]", 1, text.length() + 1));
+            final byte[] bytes = ("[" + text + "]").getBytes(StandardCharsets.US_ASCII);
+            assertEquals(text, expected, DecimalParser.parseInt(bytes, 1, bytes.length - 1));
+        }
+    }
+
+    /*
+     * all three variants must give exactly the result of Double.parseDouble
+     */
+    private static void assertParsed(final String text) {
+        final long expected = Double.doubleToRawLongBits(Double.parseDouble(text));
+        assertEquals(text, expected, Double.doubleToRawLongBits(DecimalParser.parseDouble(text)));
+        final String embedded = "{" + text + "}";
+        assertEquals(text, expected,
+                Double.doubleToRawLongBits(DecimalParser.parseDouble(embedded, 1, embedded.length() - 1)));
+        final byte[] bytes = embedded.getBytes(StandardCharsets.US_ASCII);
+        assertEquals(text, expected, Double.doubleToRawLongBits(DecimalParser.parseDouble(bytes, 1, bytes.length - 1)));
+    }
+
+    private static String randomNumber(final Random random) {
+        final StringBuilder text = new StringBuilder();
+        if (random.nextBoolean()) {
+            text.append('-');
+        }
+        final int integerDigits = 1 + random.nextInt(random.nextBoolean() ? 4 : 20);
+        text.append(random.nextInt(10));
+        for (int i = 1; i < integerDigits; i++) {
+            text.append(random.nextInt(10));
+        }
+        final int fractionDigits = random.nextInt(random.nextBoolean() ? 10 : 25);
+        if (fractionDigits > 0) {
+            text.append('.');
+            for (int i = 0; i < fractionDigits; i++) {
+                text.append(random.nextInt(10));
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            text.append(random.nextBoolean() ? 'e' : 'E');
+            final int sign = random.nextInt(3);
+            if (sign == 1) {
+                text.append('-');
+            } else if (sign == 2) {
+                text.append('+');
+            }
+            text.append(random.nextInt(random.nextBoolean() ? 30 : 400));
+        }
+        return text.toString();
+    }
+}
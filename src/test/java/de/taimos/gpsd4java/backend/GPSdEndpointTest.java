@@ -0,0 +1,76 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.taimos.gpsd4java.types.ParseException;
+import de.taimos.gpsd4java.types.TPVObject;
+
+public class GPSdEndpointTest {
+
+    private static final String TOFF = "{\"class\":\"TOFF\",\"device\":\"/dev/ttyS0\",\"real_sec\":1,\"real_nsec\":2}";
+
+    private static final String PPS = "{\"class\":\"PPS\",\"device\":\"/dev/pps0\",\"real_sec\":1,\"real_nsec\":2}";
+
+    @Test
+    public void testSkipClassesWithoutDecoder() throws Exception {
+        for (final AbstractResultParser parser : new AbstractResultParser[] { new ResultParser(),
+                new StreamingResultParser(), new ScanningResultParser() }) {
+            final GPSdEndpoint endpoint = new GPSdEndpoint(GPSdTransport.tcp("localhost", 2947), parser);
+            handleLine(endpoint, TOFF);
+            handleLine(endpoint, TOFF);
+            handleLine(endpoint, PPS);
+            handleLine(endpoint, "{\"class\":\"OSC\",\"running\":true}");
+            assertEquals("{OSC=1, PPS=1, TOFF=2}", endpoint.getSkippedLines().toString());
+            assertTrue(endpoint.getParseErrors().isEmpty());
+        }
+    }
+
+    @Test
+    public void testParseClassesWithDecoder() throws Exception {
+        final AtomicInteger decoded = new AtomicInteger();
+        final ResultParser parser = new ResultParser();
+        parser.registerDecoder("TOFF", (p, json) -> {
+            decoded.incrementAndGet();
+            return new TPVObject();
+        });
+        final GPSdEndpoint endpoint = new GPSdEndpoint(GPSdTransport.tcp("localhost", 2947), parser);
+        handleLine(endpoint, TOFF);
+        handleLine(endpoint, PPS);
+        assertEquals(1, decoded.get());
+        assertEquals("{PPS=1}", endpoint.getSkippedLines().toString());
+    }
+
+    private static void handleLine(final GPSdEndpoint endpoint, final String line) throws ParseException {
+        final byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        endpoint.handleLine(bytes, 0, bytes.length);
+    }
+}
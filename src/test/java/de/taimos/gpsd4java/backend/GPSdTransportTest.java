@@ -0,0 +1,305 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.taimos.gpsd4java.types.PollObject;
+import de.taimos.gpsd4java.types.TPVObject;
+import de.taimos.gpsd4java.types.VersionObject;
+import de.taimos.gpsd4java.types.WatchObject;
+
+public class GPSdTransportTest {
+
+    private static final String VERSION = "{\"class\":\"VERSION\",\"release\":\"3.25\",\"rev\":\"3.25\","
+            + "\"proto_major\":3,\"proto_minor\":15}";
+
+    private static final String WATCH = "{\"class\":\"WATCH\",\"enable\":true,\"json\":true}";
+
+    private static final String TPV = "{\"class\":\"TPV\",\"device\":\"/dev/ttyS0\","
+            + "\"time\":\"2021-03-04T05:06:07.123Z\",\"lat\":46.5,\"lon\":7.5,\"mode\":3}";
+
+    private static final String POLL = "{\"class\":\"POLL\",\"time\":\"2021-03-04T05:06:07.123Z\",\"active\":1,"
+            + "\"tpv\":[" + TPV + "],\"sky\":[]}";
+
+    private static final String RAW_WATCH = "{\"class\":\"WATCH\",\"enable\":true,\"json\":false,\"raw\":2}";
+
+    // binary data of a receiver, GPSd keeps sending it until it answers the WATCH command ending raw mode
+    private static final String RAW = "\u00b5b\u0001\u0007\n{\"class\":\"TPV\"\r\n\u0000";
+
+    private static final String RAW_IN_FLIGHT = "\u0002{\"class\":\"SKY\"}\n{\"cl";
+
+    // number of POLL commands the stand-in GPSd leaves unanswered
+    private final AtomicInteger unansweredPolls = new AtomicInteger();
+
+    private final BlockingQueue<String> commands = new ArrayBlockingQueue<String>(16);
+
+    private ServerSocketChannel server;
+
+    private File socketFile;
+
+    private GPSdEndpoint endpoint;
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.endpoint != null) {
+            this.endpoint.stop();
+        }
+        if (this.server != null) {
+            this.server.close();
+        }
+        if (this.socketFile != null) {
+            Files.deleteIfExists(this.socketFile.toPath());
+        }
+    }
+
+    @Test
+    public void testTcpStreams() throws Exception {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final int port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        this.assertStreams(GPSdTransport.tcp(InetAddress.getLoopbackAddress().getHostAddress(), port));
+    }
+
+    @Test
+    public void testTcpEndpoint() throws Exception {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final int port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        this.assertEndpoint(GPSdTransport.tcp(InetAddress.getLoopbackAddress().getHostAddress(), port));
+    }
+
+    @Test
+    public void testUnixSocketStreams() throws Exception {
+        this.assertStreams(GPSdTransport.unixSocket(this.openUnixServer()));
+    }
+
+    @Test
+    public void testUnixSocketEndpoint() throws Exception {
+        this.assertEndpoint(GPSdTransport.unixSocket(this.openUnixServer()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotConnected() throws Exception {
+        GPSdTransport.tcp("localhost", 2947).getInputStream();
+    }
+
+    @Test(expected = IOException.class)
+    public void testConnectionRefused() throws Exception {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final int port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        this.server.close();
+        GPSdTransport.tcp(InetAddress.getLoopbackAddress().getHostAddress(), port).connect();
+    }
+
+    @Test
+    public void testResponseAfterTimeout() throws Exception {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final int port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        this.unansweredPolls.set(2);
+        this.startEndpoint(GPSdTransport.tcp(InetAddress.getLoopbackAddress().getHostAddress(), port));
+
+        // the first request times out, the second is cancelled by the caller
+        assertNull(this.endpoint.poll());
+        this.endpoint.pollAsync().cancel(false);
+        final PollObject poll = this.endpoint.poll();
+        assertNotNull(poll);
+        assertEquals(1, poll.getFixes().size());
+        assertNotNull(this.endpoint.poll());
+    }
+
+    @Test
+    public void testRawMode() throws Exception {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final int port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        final BlockingQueue<TPVObject> tpvs = new ArrayBlockingQueue<TPVObject>(16);
+        this.startEndpoint(GPSdTransport.tcp(InetAddress.getLoopbackAddress().getHostAddress(), port), tpvs);
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        this.endpoint.setRawListener(data -> {
+            synchronized (received) {
+                while (data.hasRemaining()) {
+                    received.write(data.get());
+                }
+            }
+        });
+
+        assertNotNull(this.endpoint.watchRaw(true));
+        // the raw data sent before the response to leaving raw mode, the response starts in it
+        assertNotNull(this.endpoint.watchRaw(false));
+        assertNotNull(tpvs.poll(5, TimeUnit.SECONDS));
+        synchronized (received) {
+            assertEquals(RAW + RAW_IN_FLIGHT.substring(0, RAW_IN_FLIGHT.length() - 4),
+                    new String(received.toByteArray(), StandardCharsets.ISO_8859_1));
+        }
+        assertTrue(this.endpoint.getParseErrors().isEmpty());
+    }
+
+    /*
+     * exchange a line in both directions and check that close ends the stream of the server
+     */
+    private void assertStreams(final GPSdTransport transport) throws Exception {
+        transport.connect();
+        try (SocketChannel client = this.server.accept()) {
+            final OutputStream serverOut = Channels.newOutputStream(client);
+            serverOut.write((VERSION + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(transport.getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals(VERSION, in.readLine());
+
+            transport.getOutputStream().write("?WATCH={\"enable\":true}\n".getBytes(StandardCharsets.US_ASCII));
+            transport.getOutputStream().flush();
+            final BufferedReader serverIn = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.US_ASCII));
+            assertEquals("?WATCH={\"enable\":true}", serverIn.readLine());
+
+            transport.close();
+            assertEquals(null, serverIn.readLine());
+        }
+    }
+
+    /*
+     * run an endpoint against a stand-in GPSd answering WATCH with a TPV
+     */
+    private void assertEndpoint(final GPSdTransport transport) throws Exception {
+        final BlockingQueue<TPVObject> tpvs = new ArrayBlockingQueue<TPVObject>(16);
+        this.startEndpoint(transport, tpvs);
+
+        final WatchObject watch = this.endpoint.watch(true, true);
+        assertNotNull(watch);
+        assertTrue(watch.isEnable());
+        assertTrue(this.commands.poll(5, TimeUnit.SECONDS).startsWith("?WATCH="));
+        final TPVObject tpv = tpvs.poll(5, TimeUnit.SECONDS);
+        assertNotNull(tpv);
+        assertEquals(46.5, tpv.getLatitude(), 0.0);
+    }
+
+    private void startEndpoint(final GPSdTransport transport) throws Exception {
+        this.startEndpoint(transport, new ArrayBlockingQueue<TPVObject>(16));
+    }
+
+    /*
+     * start a stand-in GPSd and an endpoint connected to it, passing the received TPV objects to the queue
+     */
+    private void startEndpoint(final GPSdTransport transport, final BlockingQueue<TPVObject> tpvs) throws Exception {
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                GPSdTransportTest.this.serve();
+            }
+        }, "GPSd stand-in");
+        thread.setDaemon(true);
+        thread.start();
+
+        this.endpoint = new GPSdEndpoint(transport, new StreamingResultParser());
+        final CountDownLatch connected = new CountDownLatch(1);
+        this.endpoint.subscribe(VersionObject.class, version -> connected.countDown());
+        this.endpoint.subscribe(TPVObject.class, tpvs::add);
+        this.endpoint.start();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+    }
+
+    private void serve() {
+        try (SocketChannel client = this.server.accept()) {
+            final OutputStream out = Channels.newOutputStream(client);
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.US_ASCII));
+            out.write((VERSION + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            boolean raw = false;
+            String command;
+            while ((command = in.readLine()) != null) {
+                this.commands.add(command);
+                if (command.startsWith("?WATCH=") && command.contains("\"raw\":2")) {
+                    out.write((RAW_WATCH + "\r\n" + RAW).getBytes(StandardCharsets.ISO_8859_1));
+                    raw = true;
+                } else if (command.startsWith("?WATCH=")) {
+                    if (raw) {
+                        // the response starts at the end of a read of the raw data
+                        out.write(RAW_IN_FLIGHT.getBytes(StandardCharsets.ISO_8859_1));
+                        out.flush();
+                        Thread.sleep(100);
+                        out.write("ass\":".getBytes(StandardCharsets.US_ASCII));
+                        out.write(WATCH.substring(9).getBytes(StandardCharsets.US_ASCII));
+                        raw = false;
+                    } else {
+                        out.write(WATCH.getBytes(StandardCharsets.US_ASCII));
+                    }
+                    out.write(("\r\n" + TPV + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                } else if (command.equals("?POLL;") && (this.unansweredPolls.getAndDecrement() <= 0)) {
+                    out.write((POLL + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+        } catch (final IOException | InterruptedException e) {
+            // closed by the test
+        }
+    }
+
+    /*
+     * bind a server to a unix domain socket, the API needs Java 16 so it is called by reflection
+     */
+    private String openUnixServer() throws Exception {
+        assumeTrue(GPSdTransport.isUnixSocketSupported());
+        final File dir = Files.createTempDirectory("gpsd4java").toFile();
+        dir.deleteOnExit();
+        this.socketFile = new File(dir, "gpsd.sock");
+        final ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+        this.server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                .invoke(null, unix);
+        final SocketAddress address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                .getMethod("of", String.class).invoke(null, this.socketFile.getPath());
+        this.server.bind(address);
+        return this.socketFile.getPath();
+    }
+}
@@ -0,0 +1,153 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+import de.taimos.gpsd4java.types.VersionObject;
+import de.taimos.gpsd4java.types.WatchObject;
+
+/**
+ * Runs the {@link ScanningResultParser} and an endpoint in a class loader without Gson
+ */
+public class GsonFreeTest {
+
+    private static final String VERSION = "{\"class\":\"VERSION\",\"release\":\"3.25\",\"rev\":\"3.25\","
+            + "\"proto_major\":3,\"proto_minor\":15}";
+
+    private static final String TPV = "{\"class\":\"TPV\",\"device\":\"/dev/ttyS0\","
+            + "\"time\":\"2021-03-04T05:06:07.123Z\",\"lat\":46.5,\"lon\":7.5,\"mode\":3}";
+
+    private static final String SKY = "{\"class\":\"SKY\",\"device\":\"/dev/ttyS0\",\"hdop\":1.2,"
+            + "\"satellites\":[{\"PRN\":1,\"el\":10,\"az\":20,\"ss\":30,\"used\":true}]}";
+
+    @Test
+    public void testWithoutGson() throws Exception {
+        final URL[] urls = { location(GsonFreeTest.class), location(GPSdEndpoint.class),
+                location(LoggerFactory.class) };
+        try (URLClassLoader loader = new URLClassLoader(urls, null)) {
+            try {
+                loader.loadClass("com.google.gson.JsonObject");
+                fail("Gson is visible to the test class loader");
+            } catch (final ClassNotFoundException e) {
+                // expected
+            }
+            @SuppressWarnings("unchecked")
+            final Callable<String> harness = (Callable<String>) loader.loadClass(Harness.class.getName())
+                    .getConstructor().newInstance();
+            assertEquals("ok", harness.call());
+        }
+    }
+
+    private static URL location(final Class<?> type) {
+        return type.getProtectionDomain().getCodeSource().getLocation();
+    }
+
+    /**
+     * Loaded by the class loader without Gson, so it must only use the library and the JDK
+     */
+    public static final class Harness implements Callable<String> {
+
+        @Override
+        public String call() throws Exception {
+            final ScanningResultParser parser = new ScanningResultParser();
+            final TPVObject parsed = (TPVObject) parser.parse(TPV);
+            check(parsed.getLatitude() == 46.5, "TPV parsed");
+            final byte[] bytes = SKY.getBytes(StandardCharsets.US_ASCII);
+            check(((SKYObject) parser.parse(bytes, 0, bytes.length)).getSatellites().size() == 1, "SKY parsed");
+
+            try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                final Thread thread = new Thread(() -> serve(server), "GPSd stand-in");
+                thread.setDaemon(true);
+                thread.start();
+
+                final GPSdEndpoint endpoint = new GPSdEndpoint(InetAddress.getLoopbackAddress().getHostAddress(),
+                        server.getLocalPort(), new ScanningResultParser());
+                final CountDownLatch connected = new CountDownLatch(1);
+                final BlockingQueue<IGPSObject> objects = new ArrayBlockingQueue<IGPSObject>(16);
+                endpoint.subscribe(VersionObject.class, version -> connected.countDown());
+                endpoint.subscribe(TPVObject.class, objects::add);
+                endpoint.subscribe(SKYObject.class, objects::add);
+                endpoint.start();
+                try {
+                    check(connected.await(5, TimeUnit.SECONDS), "connected");
+                    final WatchObject watch = endpoint.watch(true, true);
+                    check(watch != null, "WATCH answered");
+                    check(objects.poll(5, TimeUnit.SECONDS) instanceof TPVObject, "TPV received");
+                    check(objects.poll(5, TimeUnit.SECONDS) instanceof SKYObject, "SKY received");
+                    check(endpoint.getParseErrors().isEmpty(), "no parse errors");
+                } finally {
+                    endpoint.stop();
+                }
+            }
+            return "ok";
+        }
+
+        private static void check(final boolean condition, final String what) {
+            if (!condition) {
+                throw new AssertionError("failed: " + what);
+            }
+        }
+
+        private static void serve(final ServerSocket server) {
+            try (Socket client = server.accept()) {
+                final OutputStream out = client.getOutputStream();
+                final BufferedReader in = new BufferedReader(
+                        new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                out.write((VERSION + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                String command;
+                while ((command = in.readLine()) != null) {
+                    if (command.startsWith("?WATCH=")) {
+                        out.write(("{\"class\":\"WATCH\",\"enable\":true,\"json\":true}\r\n" + TPV + "\r\n" + SKY
+                                + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    }
+                }
+            } catch (final IOException e) {
+                // closed by the endpoint
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+
+public class LazyDecodingTest {
+
+    private static final String TPV = "{\"class\":\"TPV\",\"device\":\"/dev/ttyS0\","
+            + "\"time\":\"2021-03-04T05:06:07.123Z\",\"lat\":46.01,\"lon\":7.5,\"alt\":100.0,\"mode\":3}";
+
+    private static final String SKY = "{\"class\":\"SKY\",\"device\":\"/dev/ttyS0\",\"hdop\":1.2,\"pdop\":2.1,"
+            + "\"satellites\":[{\"PRN\":1,\"el\":10,\"az\":20,\"ss\":30,\"used\":true},"
+            + "{\"PRN\":2,\"el\":11,\"az\":21,\"ss\":31.5,\"used\":false}]}";
+
+    private static final String[] LINES = { TPV, SKY,
+            "{\"class\":\"TPV\",\"tag\":\"R\\u00e9\",\"time\":1234567.5,\"lat\":\"bad\",\"lon\":null,\"mode\":2.7}",
+            "{\"class\":\"SKY\",\"satellites\":[]}", "{\"class\":\"SKY\",\"hdop\":1.2}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":1,\"class\":\"X\"}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"class\":\"SAT\",\"PRN\":1}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":1},{}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"el\":6}]}",
+            "{\"class\":\"SKY\",\"satellites\":[" + TPV + "]}",
+            "{\"class\":\"SKY\",\"satellites\":[1]}", "{\"class\":\"SKY\",\"satellites\":{\"PRN\":1}}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":1,\"el\":\"high\",\"used\":\"yes\"}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":[1]},{\"PRN\":null},{\"PRN\":1.7,\"ss\":\"-\"}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":1,\"x\":{\"class\":\"TPV\"}}]}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"PRN\":1}" };
+
+    @Test
+    public void testSameAsEagerParser() {
+        final ResultParser eager = new ResultParser();
+        final StreamingResultParser lazy = new StreamingResultParser();
+        lazy.setLazyDecoding(true);
+        for (final String line : LINES) {
+            assertEquals(line, parse(eager, line), parseLazy(lazy, line));
+        }
+    }
+
+    @Test
+    public void testEqualToEagerObjects() throws Exception {
+        final ResultParser eager = new ResultParser();
+        final StreamingResultParser lazy = new StreamingResultParser();
+        lazy.setLazyDecoding(true);
+        for (final String line : new String[] { TPV, SKY }) {
+            final IGPSObject lazyObject = decodeLazy(lazy, line);
+            final IGPSObject eagerObject = eager.parse(line);
+            assertTrue(lazyObject instanceof LazyTPVObject || lazyObject instanceof LazySKYObject);
+            assertEquals(eagerObject, lazyObject);
+            assertEquals(lazyObject, eagerObject);
+            assertEquals(eagerObject.hashCode(), lazyObject.hashCode());
+            assertEquals(lazyObject, decodeLazy(lazy, line));
+        }
+        assertNotEquals(eager.parse(TPV), decodeLazy(lazy, TPV.replace("7.5", "7.6")));
+        assertNotEquals(decodeLazy(lazy, TPV.replace("7.5", "7.6")), eager.parse(TPV));
+    }
+
+    @Test
+    public void testReplacedByMessageType() throws Exception {
+        final ResultParser eager = new ResultParser();
+        final StreamingResultParser lazy = new StreamingResultParser();
+        lazy.setLazyDecoding(true);
+
+        final ConflatingDispatcher conflating = new ConflatingDispatcher(null);
+        conflating.put(eager.parse(TPV));
+        conflating.put(decodeLazy(lazy, TPV));
+        conflating.put(decodeLazy(lazy, SKY));
+        conflating.put(eager.parse(SKY));
+        assertEquals(2, conflating.size());
+        assertEquals(2, conflating.getDropped());
+
+        final DispatchBuffer buffer = new DispatchBuffer(null, 1, EOverflowPolicy.KeepLatestPerClass);
+        buffer.put(eager.parse(TPV));
+        buffer.put(decodeLazy(lazy, TPV));
+        assertEquals(1, buffer.size());
+        assertEquals(1, buffer.getDropped());
+    }
+
+    private static String parse(final AbstractResultParser parser, final String line) {
+        try {
+            return String.valueOf(parser.parse(line));
+        } catch (final Exception e) {
+            return "failed";
+        }
+    }
+
+    private static String parseLazy(final StreamingResultParser parser, final String line) {
+        try {
+            return String.valueOf(decodeLazy(parser, line));
+        } catch (final Exception e) {
+            return "failed";
+        }
+    }
+
+    // lines are only decoded on demand when passed as bytes
+    private static IGPSObject decodeLazy(final StreamingResultParser parser, final String line) throws ParseException {
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,65 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import de.taimos.gpsd4java.api.ObjectListener;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+
+public class ListenerRegistryTest {
+
+    @Test
+    public void testMailboxCallsHandlerOfType() throws Exception {
+        final List<Object> handled = new ArrayList<Object>();
+        final ListenerRegistry registry = new ListenerRegistry();
+        registry.addListener(new ObjectListener() {
+
+            @Override
+            public void handleTPV(final TPVObject tpv) {
+                handled.add(tpv);
+            }
+        }, Runnable::run);
+
+        final StreamingResultParser parser = new StreamingResultParser();
+        parser.setLazyDecoding(true);
+        final byte[] line = "{\"class\":\"TPV\",\"lat\":46.5}".getBytes(StandardCharsets.US_ASCII);
+        final IGPSObject tpv = parser.parse(line, 0, line.length);
+        for (final Consumer<Object> consumer : registry.get(tpv.getClass())) {
+            consumer.accept(tpv);
+        }
+        assertEquals(1, handled.size());
+        assertEquals(46.5, ((TPVObject) handled.get(0)).getLatitude(), 0.0);
+        assertEquals(0, registry.get(SKYObject.class).length);
+    }
+}
@@ -0,0 +1,163 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.taimos.gpsd4java.types.EParseError;
+import de.taimos.gpsd4java.types.IGPSObject;
+import de.taimos.gpsd4java.types.ParseException;
+import de.taimos.gpsd4java.types.SATObject;
+import de.taimos.gpsd4java.types.SKYObject;
+import de.taimos.gpsd4java.types.TPVObject;
+
+public class NMEAParserTest {
+
+    private final NMEAParser parser = new NMEAParser();
+
+    private final List<IGPSObject> objects = new ArrayList<IGPSObject>();
+
+    @Before
+    public void setUp() {
+        this.parser.reset();
+        this.objects.clear();
+    }
+
+    @Test
+    public void testChecksum() throws Exception {
+        this.parse(sentence("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K"));
+        this.assertMalformed("$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K");
+        this.assertMalformed(sentence("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K").replace("054.7", "054.8"));
+        this.assertMalformed("$GPGGA,123519,4807.038,N*ZZ");
+    }
+
+    @Test
+    public void testInvalidField() throws Exception {
+        this.assertMalformed(sentence("GPGGA,12x519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"));
+    }
+
+    @Test
+    public void testIgnoredSentences() throws Exception {
+        this.parse(sentence("PGRME,15.0,M,45.0,M,25.0,M"));
+        this.parse(sentence("GPZDA,201530.00,04,07,2002,00,00"));
+        assertTrue(this.objects.isEmpty());
+    }
+
+    @Test
+    public void testCycleEndingWithGLL() throws Exception {
+        // u-blox order, the GSV group must not be taken as the end of the cycle
+        for (int i = 0; i < 3; i++) {
+            final String time = "12352" + i + ".00";
+            this.parse(sentence("GPRMC," + time + ",A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"));
+            this.parse(sentence("GPVTG,084.4,T,,M,022.4,N,041.5,K"));
+            this.parse(sentence("GPGGA," + time + ",4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"));
+            this.parse(sentence("GPGSA,A,3,04,05,,,,,,,,,,,2.5,1.3,2.1"));
+            this.parse(sentence("GPGSV,2,1,05,04,40,083,46,05,17,308,41,12,07,344,39,14,22,228,45"));
+            this.parse(sentence("GPGSV,2,2,05,24,55,123,30"));
+            this.parse(sentence("GPGLL,4807.038,N,01131.000,E," + time + ",A"));
+        }
+        assertEquals(6, this.objects.size());
+        for (int i = 0; i < 3; i++) {
+            final TPVObject tpv = (TPVObject) this.objects.get(2 * i);
+            assertEquals(764426120.0 + i, tpv.getTimestamp(), 1e-6);
+            assertEquals(48.1173, tpv.getLatitude(), 1e-9);
+            assertEquals(545.4, tpv.getAltitude(), 1e-9);
+            final SKYObject sky = (SKYObject) this.objects.get((2 * i) + 1);
+            assertEquals(5, sky.getSatellites().size());
+        }
+        assertEquals("GLL", ((TPVObject) this.objects.get(2)).getTag());
+    }
+
+    @Test
+    public void testCycleWithSeveralTalkers() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            final String time = "12352" + i + ".00";
+            this.parse(sentence("GNRMC," + time + ",A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"));
+            this.parse(sentence("GNGGA," + time + ",4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"));
+            this.parse(sentence("GPGSV,2,1,05,04,40,083,46,05,17,308,41,12,07,344,39,14,22,228,45"));
+            this.parse(sentence("GPGSV,2,2,05,24,55,123,30"));
+            this.parse(sentence("GLGSV,1,1,02,65,40,083,46,66,17,308,41"));
+            this.parse(sentence("GNGSA,A,3,04,05,,,,,,,,,,,2.5,1.3,2.1"));
+            assertEquals(2 * i, this.objects.size());
+            this.parse(sentence("GNGSA,A,3,65,,,,,,,,,,,,2.5,1.3,2.1"));
+        }
+        // the first cycle is passed on when the second one starts, the second after its last GNGSA
+        assertEquals(4, this.objects.size());
+        final SKYObject sky = (SKYObject) this.objects.get(3);
+        assertEquals(7, sky.getSatellites().size());
+        int used = 0;
+        for (final SATObject sat : sky.getSatellites()) {
+            if (sat.getUsed()) {
+                used++;
+            }
+        }
+        assertEquals(3, used);
+    }
+
+    @Test
+    public void testCycleEndingWithLastTalker() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final String time = "12352" + i + ".00";
+            this.parse(sentence("GNRMC," + time + ",A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"));
+            this.parse(sentence("GPGSV,1,1,01,04,40,083,46"));
+            this.parse(sentence("GLGSV,2,1,02,65,40,083,46"));
+            if (i > 0) {
+                assertEquals(2 * i, this.objects.size());
+            }
+            this.parse(sentence("GLGSV,2,2,02,66,17,308,41"));
+        }
+        assertEquals(6, this.objects.size());
+        assertEquals(3, ((SKYObject) this.objects.get(5)).getSatellites().size());
+    }
+
+    private void parse(final String sentence) throws ParseException {
+        final byte[] bytes = (sentence + "\r").getBytes(StandardCharsets.US_ASCII);
+        this.parser.parse(bytes, 0, bytes.length, this.objects::add);
+    }
+
+    private void assertMalformed(final String sentence) {
+        try {
+            this.parse(sentence);
+            fail("no exception for " + sentence);
+        } catch (final ParseException e) {
+            assertEquals(EParseError.Malformed, e.getReason());
+        }
+    }
+
+    private static String sentence(final String body) {
+        int checksum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            checksum ^= body.charAt(i);
+        }
+        return String.format("$%s*%02X", body, checksum);
+    }
+}
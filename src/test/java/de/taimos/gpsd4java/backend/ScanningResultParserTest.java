@@ -0,0 +1,99 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ScanningResultParserTest {
+
+    private static final String TPV = "{\"class\":\"TPV\",\"device\":\"/dev/ttyS0\","
+            + "\"time\":\"2021-03-04T05:06:07.123Z\","
+            + "\"lat\":46.01,\"lon\":7.5,\"alt\":100.0,\"epx\":1.5,\"speed\":0.25,\"track\":12.5,\"mode\":3}";
+
+    private static final String SKY = "{\"class\":\"SKY\",\"device\":\"/dev/ttyS0\",\"hdop\":1.2,\"pdop\":2.1,"
+            + "\"satellites\":[{\"PRN\":1,\"el\":10,\"az\":20,\"ss\":30,\"used\":true},"
+            + "{\"PRN\":2,\"el\":11,\"az\":21,\"ss\":31.5,\"used\":false}]}";
+
+    private static final String[] LINES = { TPV, SKY,
+            "{\"class\":\"GST\",\"device\":\"/dev/ttyS0\",\"rms\":1.5,\"major\":2,\"minor\":1,\"orient\":45}",
+            "{\"class\":\"ATT\",\"device\":\"/dev/ttyS0\",\"heading\":1.5,\"mag_st\":\"N\",\"pitch\":-2,\"acc_x\":0.5}",
+            "{\"class\":\"VERSION\",\"release\":\"3.20\",\"rev\":\"x\",\"proto_major\":3,\"proto_minor\":14}",
+            "{\"class\":\"WATCH\",\"enable\":true,\"json\":true}", "{\"class\":\"WATCH\",\"enable\":false}",
+            "{\"class\":\"POLL\",\"time\":\"2021-03-04T05:06:07.123Z\",\"active\":1,\"tpv\":[" + TPV + "],\"sky\":["
+                    + SKY + "]}",
+            "{\"class\":\"POLL\",\"timestamp\":12.5,\"fixes\":[],\"skyviews\":[" + SKY
+                    + "],\"gst\":[{\"class\":\"GST\",\"rms\":2}]}",
+            "{\"class\":\"DEVICES\",\"devices\":[{\"class\":\"DEVICE\",\"path\":\"/dev/ttyS0\",\"driver\":\"NMEA0183\","
+                    + "\"bps\":4800,\"parity\":\"N\",\"native\":1,\"activated\":\"2021-03-04T05:06:07.123Z\","
+                    + "\"cycle\":1.00}]}",
+            "{\"class\":\"SUBFRAME\",\"device\":\"/dev/ttyS0\",\"tSV\":3,\"TOW17\":1,\"frame\":5,\"scaled\":true,"
+                    + "\"pageid\":2,\"ALMANAC\":{\"ID\":3,\"Health\":0,\"e\":0.01,\"toa\":1,\"deltai\":0.1,"
+                    + "\"Omegad\":0.2,\"sqrtA\":5153.6,\"Omega0\":1.1,\"omega\":0.5,\"M0\":0.3,"
+                    + "\"af0\":0.0001,\"af1\":0}}",
+            "{\"class\":\"SUBFRAME\",\"tSV\":3,\"frame\":4,"
+                    + "\"IONO\":{\"a0\":1,\"a1\":2,\"WNt\":3,\"WNlsf\":4,\"ls\":18}}",
+            "{\"class\":\"SUBFRAME\",\"tSV\":3,\"frame\":4,"
+                    + "\"HEALTH\":{\"data_id\":1,\"SV1\":2,\"SV32\":3,\"SVH25\":4}}",
+            "{\"class\":\"SUBFRAME\",\"tSV\":3,\"frame\":1,"
+                    + "\"EPHEM1\":{\"WN\":3,\"IODC\":4,\"L2\":1}}",
+            "{\"class\":\"SUBFRAME\",\"tSV\":3,\"frame\":4,\"system_message\":\"hello\"}",
+            "{\"class\":\"TPV\",\"tag\":\"R\\u00e9\\\"x\\/\",\"time\":1234567.5,\"lat\":\"bad\",\"lon\":null,"
+                    + "\"alt\":true,\"extra\":{\"a\":[1,2,{\"b\":\"}]\"}]},\"mode\":2.7}",
+            "{\"class\":\"SKY\",\"satellites\":[{\"el\":6}]}", "{\"class\":\"SKY\",\"satellites\":[1]}",
+            "{\"class\":\"TOFF\",\"device\":\"x\"}", "{\"PRN\":5,\"ss\":40}", "{\"lat\":1,\"class\":\"TPV\"}",
+            "{\"class\":\"TPV\",\"lat\":1} x", "{\"class\":\"TPV\",\"lat\":1", "[1]", "",
+            "  {\"class\" : \"TPV\" , \"lat\" : -1e2 }  " };
+
+    @Test
+    public void testSameAsResultParser() {
+        final ResultParser expected = new ResultParser();
+        final ScanningResultParser scanning = new ScanningResultParser();
+        for (final String line : LINES) {
+            final String result = parse(expected, line);
+            assertEquals(line, result, parse(scanning, line));
+            final byte[] bytes = ("\n" + line + "\n").getBytes(StandardCharsets.UTF_8);
+            assertEquals(line, result, parse(scanning, bytes, 1, bytes.length - 2));
+        }
+    }
+
+    private static String parse(final AbstractResultParser parser, final String line) {
+        try {
+            return String.valueOf(parser.parse(line));
+        } catch (final Exception e) {
+            return "failed";
+        }
+    }
+
+    private static String parse(final AbstractResultParser parser, final byte[] bytes, final int offset,
+            final int length) {
+        try {
+            return String.valueOf(parser.parse(bytes, offset, length));
+        } catch (final Exception e) {
+            return "failed";
+        }
+    }
+}
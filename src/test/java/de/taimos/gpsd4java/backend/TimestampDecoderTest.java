@@ -0,0 +1,92 @@
+package de.taimos.gpsd4java.backend;
+
+/*
+ * #%L
+ * GPSd4Java
+ * %%
+ * Copyright (C) 2011 - 2012 Taimos GmbH
+ * Copyright (C) 2022 - Eurotech S.p.a.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimestampDecoderTest {
+
+    @Test
+    public void testDecode() {
+        assertEquals(0.0, TimestampDecoder.decodeEpochSeconds("1970-01-01T00:00:00Z"), 0.0);
+        assertEquals(1614834367.123, TimestampDecoder.decodeEpochSeconds("2021-03-04T05:06:07.123Z"), 0.0);
+        assertEquals(1614834367123000000L, TimestampDecoder.decodeEpochNanos("2021-03-04T05:06:07.123Z"));
+        assertEquals(951782400L * 1000000000L, TimestampDecoder.decodeEpochNanos("2000-02-29T00:00:00Z"));
+        assertEquals(1614834367123456789L, TimestampDecoder.decodeEpochNanos("2021-03-04T05:06:07.123456789123Z"));
+        assertEquals(1614834367.5, TimestampDecoder.decodeEpochSeconds("x\"2021-03-04T05:06:07.5Z\"", 2, 24), 0.0);
+    }
+
+    @Test
+    public void testInvalid() {
+        final String[] invalid = { "", "2021-03-04T05:06:07", "2021-03-04T05:06:07.Z", "2021-03-04 05:06:07Z",
+                "2021-13-04T05:06:07Z", "2021-03-04T24:06:07Z", "2021-03-04T05:06:07.1xZ", "2021-03-04T05:6:07.1Z",
+                "2021/03/04T05:06:07Z" };
+        for (final String text : invalid) {
+            assertTrue(text, Double.isNaN(TimestampDecoder.decodeEpochSeconds(text)));
+            assertEquals(text, TimestampDecoder.INVALID, TimestampDecoder.decodeEpochNanos(text));
+        }
+    }
+
+    @Test
+    public void testSameAsInstant() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            final long seconds = (long) (random.nextDouble() * 4102444800L);
+            final int nanos = random.nextInt(1000000000);
+            final int digits = random.nextInt(10);
+            final String text = format(seconds, nanos, digits);
+            final Instant instant = Instant.parse(text);
+            final long expectedNanos = (instant.getEpochSecond() * 1000000000L) + instant.getNano();
+            assertEquals(text, expectedNanos, TimestampDecoder.decodeEpochNanos(text));
+            if (digits <= 3) {
+                // the same value the SimpleDateFormat of older versions gave
+                assertEquals(text, instant.toEpochMilli() / 1000.0, TimestampDecoder.decodeEpochSeconds(text), 0.0);
+            } else {
+                assertEquals(text, expectedNanos / 1e9, TimestampDecoder.decodeEpochSeconds(text), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testDaysFromCivil() {
+        assertEquals(0, TimestampDecoder.daysFromCivil(1970, 1, 1));
+        assertEquals(-1, TimestampDecoder.daysFromCivil(1969, 12, 31));
+        assertEquals(11016, TimestampDecoder.daysFromCivil(2000, 2, 29));
+        assertEquals(11017, TimestampDecoder.daysFromCivil(2000, 3, 1));
+    }
+
+    private static String format(final long seconds, final int nanos, final int digits) {
+        final String text = Instant.ofEpochSecond(seconds).toString();
+        if (digits == 0) {
+            return text;
+        }
+        final String fraction = String.format("%09d", nanos).substring(0, digits);
+        return text.substring(0, text.length() - 1) + "." + fraction + "Z";
+    }
+}